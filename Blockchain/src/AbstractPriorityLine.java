@@ -0,0 +1,60 @@
+import java.util.Iterator;
+
+/**
+ * The operations of a priority queue, without any storage.
+ * PriorityLine keeps its elements in a binary heap, while the transaction queues keep them in buckets by fee,
+ * so each implementation only carries the storage it uses. Higher elements are dequeued first.
+ * @param <T> Generic object type.
+ */
+public abstract class AbstractPriorityLine<T extends Comparable<T>> implements Iterable<T>
+{
+    /**
+     * Inserts the element given into its proper location based on its value (Descending order).
+     * @param element The element to insert.
+     */
+    public abstract void enqueue(T element);
+
+    /**
+     * Inserts all the elements given, in the order the iterable gives them.
+     * @param elements The elements to insert.
+     */
+    public void enqueueAll(Iterable<? extends T> elements)
+    {
+        for(T element : elements)
+            enqueue(element);
+    }
+
+    /**
+     * Dequeues the first element in the queue.
+     * @return Returns the removed element.
+     */
+    public abstract T dequeue();
+
+    /**
+     * Retreives the first element in the queue that will be removed when dequeue is called.
+     * @return Retunrs the element to be dequeued.
+     */
+    public abstract T peek();
+
+    /**
+     * The size of the queue.
+     * @return Returns the size.
+     */
+    public abstract int size();
+
+    /**
+     * Determines whether the queue is empty or not.
+     * @return Returns true if it's empty, false otherwise.
+     */
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    /**
+     * Iterates through the queue in the order the elements would be dequeued, without removing them.
+     * @return Retunrs an iterator thats used to iterate through the queue.
+     */
+    @Override
+    public abstract Iterator<T> iterator();
+}
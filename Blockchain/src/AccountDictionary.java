@@ -0,0 +1,93 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gives every account name a dense int id, so a name is stored once however many transactions use it.
+ * Transactions keep the ids and look the names up only when they are printed or hashed.
+ * Ids are never reused and names are never removed, so the dictionary grows with the number of distinct accounts.
+ * Lookups can be made from any number of threads, new names are added under a lock.
+ */
+public final class AccountDictionary
+{
+    /**
+     * The dictionary shared by every Transaction.
+     */
+    private static final AccountDictionary SHARED = new AccountDictionary();
+    /**
+     * Largest number of names, the ids index one array and it can't be larger than the largest Java array.
+     */
+    private static final int MAX_NAMES = Integer.MAX_VALUE - 8;
+
+    /**
+     * Id of every name.
+     */
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    /**
+     * Name of every id, replaced by a larger copy when full.
+     */
+    private volatile String[] names = new String[1024];
+    /**
+     * Number of names.
+     */
+    private volatile int size;
+
+    /**
+     * The dictionary shared by every Transaction.
+     * @return Returns the shared dictionary.
+     */
+    public static AccountDictionary shared()
+    {
+        return SHARED;
+    }
+
+    /**
+     * The id of a name, giving it the next id if it's new.
+     * @param name The account name.
+     * @return Returns the id.
+     */
+    public int id(String name)
+    {
+        if(name == null)
+            throw new RuntimeException("Account name is null");
+        Integer id = ids.get(name);
+        if(id != null)
+            return id;
+        synchronized(this)
+        {
+            id = ids.get(name);
+            if(id != null)
+                return id;
+            if(size == MAX_NAMES)
+                throw new RuntimeException("Too many account names: " + size);
+            if(size == names.length)
+                names = Arrays.copyOf(names, (int) Math.min(2L * names.length, MAX_NAMES));
+            // The name is stored before its id is published, so whoever sees the id can read the name.
+            names[size] = name;
+            id = size;
+            size = size + 1;
+            ids.put(name, id);
+            return id;
+        }
+    }
+
+    /**
+     * The name of an id.
+     * @param id The id.
+     * @return Returns the account name.
+     */
+    public String name(int id)
+    {
+        if(id < 0 || id >= size)
+            throw new RuntimeException("Invalid account id: " + id);
+        return names[id];
+    }
+
+    /**
+     * Number of distinct account names.
+     * @return Returns the number of names.
+     */
+    public int size()
+    {
+        return size;
+    }
+}
@@ -0,0 +1,233 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A MerkleProof in its compact binary form, read directly from the buffer it was received in.
+ * The format is a 4 byte big-endian number of siblings n, then the side bits in ceil(n/8) bytes with bit i of the proof in bit i%8 of byte i/8,
+ * then the n raw 32 byte sibling hashes deepest first. A bit is set when its sibling is the left child.
+ * A proof of height 16 takes 518 bytes, against 1024 characters for the same hashes in hex.
+ * The count is always big-endian, whatever the byte order of the buffer it's written to or read from.
+ */
+public final class BinaryProof
+{
+    /**
+     * Bytes taken by the number of siblings.
+     */
+    private static final int HEADER_BYTES = 4;
+
+    /**
+     * View of the encoded proof, position 0 is the start of the proof.
+     */
+    private final ByteBuffer buffer;
+    /**
+     * Number of siblings.
+     */
+    private final int length;
+    /**
+     * Index in the view of the first sibling.
+     */
+    private final int siblingsOffset;
+
+    /**
+     * Constructor for the view.
+     * @param buffer View of the encoded proof, position 0 is the start of the proof.
+     * @param length Number of siblings.
+     */
+    private BinaryProof(ByteBuffer buffer, int length)
+    {
+        this.buffer = buffer;
+        this.length = length;
+        this.siblingsOffset = HEADER_BYTES + sideBytes(length);
+    }
+
+    /**
+     * Number of bytes a proof takes once encoded.
+     * @param proof The proof to encode.
+     * @return Returns the encoded size in bytes.
+     */
+    public static int encodedSize(MerkleProof proof)
+    {
+        return HEADER_BYTES + sideBytes(proof.size()) + proof.size() * Hash.BYTES;
+    }
+
+    /**
+     * Writes a proof at the position of a buffer, the position is moved past the proof.
+     * @param proof The proof to encode.
+     * @param out The buffer to write to.
+     */
+    public static void encode(MerkleProof proof, ByteBuffer out)
+    {
+        if(out.remaining() < encodedSize(proof))
+            throw new RuntimeException("Buffer too small for proof: " + out.remaining() + " bytes left, " + encodedSize(proof) + " needed");
+        int n = proof.size();
+        out.duplicate().order(ByteOrder.BIG_ENDIAN).putInt(out.position(), n);
+        out.position(out.position() + HEADER_BYTES);
+        long sides = proof.getLeftSides();
+        for(int i = 0; i < sideBytes(n); i++)
+            out.put((byte) (sides >>> (8 * i)));
+        byte[] raw = new byte[Hash.BYTES];
+        for(int i = 0; i < n; i++)
+        {
+            proof.getSibling(i).copyTo(raw, 0);
+            out.put(raw);
+        }
+    }
+
+    /**
+     * Reads a proof from the position of a buffer without copying it, the position is moved past the proof.
+     * The returned proof reads the buffer's content, so the content must not change while the proof is in use.
+     * @param in The buffer holding the encoded proof.
+     * @return Returns a view of the proof.
+     */
+    public static BinaryProof wrap(ByteBuffer in)
+    {
+        if(in.remaining() < HEADER_BYTES)
+            throw new RuntimeException("Truncated proof: " + in.remaining() + " bytes");
+        int n = in.duplicate().order(ByteOrder.BIG_ENDIAN).getInt(in.position());
+        if(n < 0 || n > Long.SIZE)
+            throw new RuntimeException("Invalid proof length: " + n);
+        int size = HEADER_BYTES + sideBytes(n) + n * Hash.BYTES;
+        if(in.remaining() < size)
+            throw new RuntimeException("Truncated proof: " + in.remaining() + " bytes, " + size + " needed");
+
+        ByteBuffer view = in.slice();
+        view.limit(size);
+        in.position(in.position() + size);
+        return new BinaryProof(view, n);
+    }
+
+    /**
+     * Number of hashes in the proof.
+     * @return Returns the number of siblings.
+     */
+    public int size()
+    {
+        return length;
+    }
+
+    /**
+     * Whether a sibling is the left child of its parent.
+     * @param index Index of the sibling, 0 is the deepest.
+     * @return Returns true if the sibling is on the left, false if it's on the right.
+     */
+    public boolean isLeft(int index)
+    {
+        checkIndex(index);
+        return (buffer.get(HEADER_BYTES + index / 8) >>> (index % 8) & 1) != 0;
+    }
+
+    /**
+     * Retrieves a sibling hash.
+     * @param index Index of the sibling, 0 is the deepest.
+     * @return Returns the sibling hash.
+     */
+    public Hash getSibling(int index)
+    {
+        checkIndex(index);
+        byte[] raw = new byte[Hash.BYTES];
+        copySibling(index, raw, 0);
+        return Hash.fromBytes(raw, 0);
+    }
+
+    /**
+     * Copies the raw bytes of a sibling hash into an array.
+     * @param index Index of the sibling, 0 is the deepest.
+     * @param dest The array to write to.
+     * @param offset The index to write the first byte at.
+     */
+    public void copySibling(int index, byte[] dest, int offset)
+    {
+        checkIndex(index);
+        int start = siblingsOffset + index * Hash.BYTES;
+        for(int i = 0; i < Hash.BYTES; i++)
+            dest[offset + i] = buffer.get(start + i);
+    }
+
+    /**
+     * Recomputes the root hash from a leaf hash and the siblings.
+     * When the buffer is backed by an array the siblings are combined in place without being copied.
+     * @param leafHash The hash of the proven leaf.
+     * @param hashFunction The hash function the tree was built with.
+     * @param combiner How the tree merged the hashes of two children.
+     * @return Returns the root hash implied by the proof.
+     */
+    public Hash computeRoot(Hash leafHash, HashFunction hashFunction, Combiner combiner)
+    {
+        // The first half holds the hash built so far, the second half a copied sibling when the buffer has no array.
+        byte[] current = new byte[2 * Hash.BYTES];
+        leafHash.copyTo(current, 0);
+        for(int i = 0; i < length; i++)
+        {
+            byte[] sibling;
+            int siblingOffset;
+            if(buffer.hasArray())
+            {
+                sibling = buffer.array();
+                siblingOffset = buffer.arrayOffset() + siblingsOffset + i * Hash.BYTES;
+            }
+            else
+            {
+                copySibling(i, current, Hash.BYTES);
+                sibling = current;
+                siblingOffset = Hash.BYTES;
+            }
+            if(isLeft(i))
+                combiner.combine(hashFunction, sibling, siblingOffset, current, 0, current, 0);
+            else
+                combiner.combine(hashFunction, current, 0, sibling, siblingOffset, current, 0);
+        }
+        return Hash.fromBytes(current, 0);
+    }
+
+    /**
+     * Recomputes the root hash from a transaction.
+     * @param t The proven transaction.
+     * @param hashFunction The hash function the tree was built with.
+     * @param combiner How the tree merged the hashes of two children.
+     * @return Returns the root hash implied by the proof.
+     */
+    public Hash computeRoot(Transaction t, HashFunction hashFunction, Combiner combiner)
+    {
+        byte[] bytes = t.toString().getBytes(StandardCharsets.UTF_8);
+        return computeRoot(hashFunction.hash(bytes, 0, bytes.length), hashFunction, combiner);
+    }
+
+    /**
+     * Copies the proof into a MerkleProof.
+     * @return Returns the decoded proof, its leaf index is taken from the side bits.
+     */
+    public MerkleProof toMerkleProof()
+    {
+        Hash[] siblings = new Hash[length];
+        long sides = 0;
+        for(int i = 0; i < length; i++)
+        {
+            siblings[i] = getSibling(i);
+            if(isLeft(i))
+                sides |= 1L << i;
+        }
+        // In a perfect tree the path goes right exactly where the sibling is on the left, so the side bits are the leaf index.
+        return new MerkleProof((int) sides, siblings, sides);
+    }
+
+    /**
+     * Number of bytes the side bits take.
+     * @param length Number of siblings.
+     * @return Returns the number of bytes.
+     */
+    private static int sideBytes(int length)
+    {
+        return (length + 7) / 8;
+    }
+
+    /**
+     * Checks that a sibling index is in range.
+     * @param index Index of the sibling.
+     */
+    private void checkIndex(int index)
+    {
+        if(index < 0 || index >= length)
+            throw new RuntimeException("Invalid index: " + index);
+    }
+}
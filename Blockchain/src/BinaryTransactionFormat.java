@@ -0,0 +1,108 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * A compact binary file format for transactions, and the converter from the text format.
+ * The file starts with a header: the magic number "TXNB", a version byte and a flags byte, bit 0 meaning the blocks may be compressed.
+ * Then come blocks of up to BLOCK_SIZE transactions, each one a flags byte (bit 0 set when the payload is deflated),
+ * the number of transactions n, the length of the payload and the length of the payload as stored, followed by the stored payload.
+ * A block with an empty payload ends the file, every other block has at least the 4 bytes of its name count. All numbers are 4 byte big-endian ints.
+ * The payload holds the names used for the first time in the block, each as its length in bytes and its UTF-8 bytes,
+ * then the columns of the n sender ids, n receiver ids, n amounts and n fees. The names of a block take at most MAX_NAME_BYTES,
+ * so no payload is longer than MAX_PAYLOAD and a reader can reject a corrupt length before allocating for it.
+ * Names get ids in the order they first appear in the file, so the dictionary grows block by block and both ends can stream.
+ */
+public final class BinaryTransactionFormat
+{
+    /**
+     * First four bytes of every file, "TXNB".
+     */
+    public static final int MAGIC = 0x54584E42;
+    /**
+     * Version of the format written.
+     */
+    public static final byte VERSION = 1;
+    /**
+     * Flag of the header, and of a block, set when blocks are compressed.
+     */
+    public static final byte DEFLATED = 1;
+    /**
+     * Number of transactions in a full block.
+     */
+    public static final int BLOCK_SIZE = 65536;
+    /**
+     * Maximum number of bytes of the new names of a block, lengths included.
+     */
+    public static final int MAX_NAME_BYTES = 65536;
+    /**
+     * Maximum length of a payload: the name count, the names and the four columns of a full block.
+     */
+    public static final int MAX_PAYLOAD = 4 + MAX_NAME_BYTES + 16 * BLOCK_SIZE;
+
+    /**
+     * Converts a text transaction file to the binary format.
+     * The file is written next to the binary file under a temporary name and only renamed once every transaction was converted,
+     * so a failed conversion leaves no file behind, or the previous one untouched.
+     * @param textFile The filename of the text file.
+     * @param binaryFile The filename of the binary file to write.
+     * @param compress Whether to deflate the blocks.
+     * @return Returns the number of transactions converted.
+     */
+    public static long convert(String textFile, String binaryFile, boolean compress)
+    {
+        Path target = Paths.get(binaryFile).toAbsolutePath();
+        Path temp = null;
+        boolean converted = false;
+        try
+        {
+            temp = Files.createTempFile(target.getParent(), target.getFileName() + ".", ".tmp");
+            long count;
+            try(final BinaryTransactionWriter writer = new BinaryTransactionWriter(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16), compress))
+            {
+                count = new TransactionFileReader().read(textFile, writer::write);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            converted = true;
+            return count;
+        }
+        catch(IOException e)
+        {
+            throw new RuntimeException("File: " + binaryFile + " could not be written: " + e.getMessage());
+        }
+        finally
+        {
+            if(!converted && temp != null)
+            {
+                try
+                {
+                    Files.deleteIfExists(temp);
+                }
+                catch(IOException e)
+                {
+                    // The conversion already failed, that error is the one reported.
+                }
+            }
+        }
+    }
+
+    /**
+     * Main method.
+     * Usage: java BinaryTransactionFormat textfile binaryfile [-z].
+     * @param args The text file to read, the binary file to write, and -z to compress.
+     */
+    public static void main(String[] args)
+    {
+        if(args.length < 2 || args.length > 3 || (args.length == 3 && !args[2].equals("-z")))
+        {
+            System.err.println("Usage: java BinaryTransactionFormat <text file> <binary file> [-z]");
+            return;
+        }
+        long begin = System.nanoTime();
+        long count = convert(args[0], args[1], args.length == 3);
+        System.out.println(String.format("Converted %d transactions in %d ms", count, (System.nanoTime() - begin) / 1000000));
+    }
+}
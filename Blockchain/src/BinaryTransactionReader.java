@@ -0,0 +1,229 @@
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads transactions in the BinaryTransactionFormat one block at a time, as an iterator.
+ * Every name is decoded and looked up in the AccountDictionary once, when it first appears in the file.
+ */
+public class BinaryTransactionReader implements Iterator<Transaction>, Closeable
+{
+    /**
+     * Where the file is read from.
+     */
+    private final DataInputStream in;
+    /**
+     * Decompressor of the blocks.
+     */
+    private final Inflater inflater = new Inflater();
+    /**
+     * Account id of every name read so far, by id in the file.
+     */
+    private int[] accountIds = new int[1024];
+    /**
+     * Number of names read so far.
+     */
+    private int numNames;
+    /**
+     * The payload of the current block, positioned at the sender column.
+     */
+    private ByteBuffer block;
+    /**
+     * Stored payload of the current block, reused between blocks.
+     */
+    private byte[] stored = new byte[0];
+    /**
+     * Payload of the current block, reused between blocks.
+     */
+    private byte[] payload = new byte[0];
+    /**
+     * Number of transactions in the current block.
+     */
+    private int count;
+    /**
+     * Index of the next transaction in the current block.
+     */
+    private int next;
+    /**
+     * Whether the end of the file was reached.
+     */
+    private boolean finished;
+
+    /**
+     * Constructor for the reader, reads the header.
+     * @param in Where the file is read from, closed with the reader.
+     */
+    public BinaryTransactionReader(InputStream in) throws IOException
+    {
+        this.in = new DataInputStream(in);
+        if(this.in.readInt() != BinaryTransactionFormat.MAGIC)
+            throw new RuntimeException("Not a binary transaction file");
+        byte version = this.in.readByte();
+        if(version != BinaryTransactionFormat.VERSION)
+            throw new RuntimeException("Unsupported binary transaction file version: " + version);
+        this.in.readByte();
+    }
+
+    /**
+     * Reads every transaction of a binary file into a new priority queue.
+     * @param binaryFile The filename of the binary file.
+     * @return Returns a queue of the Transactions.
+     */
+    public static PriorityLine<Transaction> load(String binaryFile)
+    {
+        ArrayList<Transaction> read = new ArrayList<>();
+        try(BinaryTransactionReader reader = new BinaryTransactionReader(new BufferedInputStream(new FileInputStream(binaryFile), 1 << 16)))
+        {
+            while(reader.hasNext())
+                read.add(reader.next());
+        }
+        catch(FileNotFoundException e)
+        {
+            throw new RuntimeException("File: " + binaryFile + " not found");
+        }
+        catch(IOException e)
+        {
+            throw new RuntimeException("File: " + binaryFile + " could not be read: " + e.getMessage());
+        }
+        return new PriorityLine<>(read);
+    }
+
+    /**
+     * Whether there are transactions left, reading the next block when the current one is done.
+     * @return Returns true if there is a next transaction.
+     */
+    @Override
+    public boolean hasNext()
+    {
+        try
+        {
+            while(next == count && !finished)
+                readBlock();
+        }
+        catch(EOFException e)
+        {
+            throw new RuntimeException("Truncated binary transaction file");
+        }
+        catch(IOException e)
+        {
+            throw new RuntimeException("Could not read transactions: " + e.getMessage());
+        }
+        return next < count;
+    }
+
+    /**
+     * Reads the next transaction.
+     * @return Returns the transaction.
+     */
+    @Override
+    public Transaction next()
+    {
+        if(!hasNext())
+            throw new NoSuchElementException();
+        int i = next++;
+        int sender = accountId(block.getInt(4 * i));
+        int receiver = accountId(block.getInt(4 * (count + i)));
+        return new Transaction(sender, receiver, block.getInt(4 * (2 * count + i)), block.getInt(4 * (3 * count + i)));
+    }
+
+    /**
+     * Closes the stream.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        inflater.end();
+        in.close();
+    }
+
+    /**
+     * Reads the next block and its new names.
+     */
+    private void readBlock() throws IOException
+    {
+        byte flags = in.readByte();
+        int numTransactions = in.readInt();
+        int length = in.readInt();
+        int storedLength = in.readInt();
+        if(length == 0)
+        {
+            finished = true;
+            count = 0;
+            next = 0;
+            return;
+        }
+        // Check the lengths against the largest block the writer makes before allocating for them.
+        if(numTransactions < 0 || numTransactions > BinaryTransactionFormat.BLOCK_SIZE || length < 4 + 16L * numTransactions
+            || length > BinaryTransactionFormat.MAX_PAYLOAD || storedLength < 0 || storedLength > length)
+            throw new RuntimeException("Corrupt binary transaction block");
+
+        if(stored.length < storedLength)
+            stored = new byte[storedLength];
+        in.readFully(stored, 0, storedLength);
+        byte[] bytes = stored;
+        if((flags & BinaryTransactionFormat.DEFLATED) != 0)
+        {
+            if(payload.length < length)
+                payload = new byte[length];
+            inflater.reset();
+            inflater.setInput(stored, 0, storedLength);
+            try
+            {
+                if(inflater.inflate(payload, 0, length) != length || !inflater.finished())
+                    throw new RuntimeException("Corrupt binary transaction block");
+            }
+            catch(DataFormatException e)
+            {
+                throw new RuntimeException("Corrupt binary transaction block: " + e.getMessage());
+            }
+            bytes = payload;
+        }
+        else if(storedLength != length)
+        {
+            throw new RuntimeException("Corrupt binary transaction block");
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+        int numNewNames = buffer.getInt();
+        for(int i = 0; i < numNewNames; i++)
+        {
+            int nameLength = buffer.getInt();
+            if(nameLength < 0 || nameLength > buffer.remaining())
+                throw new RuntimeException("Corrupt binary transaction block");
+            if(numNames == accountIds.length)
+                accountIds = Arrays.copyOf(accountIds, 2 * numNames);
+            accountIds[numNames++] = AccountDictionary.shared().id(new String(bytes, buffer.position(), nameLength, StandardCharsets.UTF_8));
+            buffer.position(buffer.position() + nameLength);
+        }
+        if(buffer.remaining() != 16 * numTransactions)
+            throw new RuntimeException("Corrupt binary transaction block");
+        block = buffer.slice();
+        count = numTransactions;
+        next = 0;
+    }
+
+    /**
+     * The account id of a name id of the file.
+     * @param id The id in the file.
+     * @return Returns the id in the shared AccountDictionary.
+     */
+    private int accountId(int id)
+    {
+        if(id < 0 || id >= numNames)
+            throw new RuntimeException("Corrupt binary transaction block: unknown name " + id);
+        return accountIds[id];
+    }
+}
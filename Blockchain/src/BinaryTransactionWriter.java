@@ -0,0 +1,220 @@
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Writes transactions in the BinaryTransactionFormat as they come, keeping only the current block in memory.
+ * The stream is only complete once the writer is closed.
+ */
+public class BinaryTransactionWriter implements Closeable
+{
+    /**
+     * Where the file is written.
+     */
+    private final DataOutputStream out;
+    /**
+     * Compressor of the blocks, null when they are stored as they are.
+     */
+    private final Deflater deflater;
+    /**
+     * Id in the file of every account written so far by its id in the AccountDictionary, -1 for accounts not written yet.
+     */
+    private int[] fileIds = new int[0];
+    /**
+     * Number of names written so far.
+     */
+    private int numNames;
+    /**
+     * Names used for the first time in the current block, in UTF-8.
+     */
+    private final ByteBuffer newNames = ByteBuffer.allocate(BinaryTransactionFormat.MAX_NAME_BYTES);
+    /**
+     * Number of names used for the first time in the current block.
+     */
+    private int numNewNames;
+    /**
+     * Sender ids of the current block.
+     */
+    private final int[] senders = new int[BinaryTransactionFormat.BLOCK_SIZE];
+    /**
+     * Receiver ids of the current block.
+     */
+    private final int[] receivers = new int[BinaryTransactionFormat.BLOCK_SIZE];
+    /**
+     * Amounts of the current block.
+     */
+    private final int[] amounts = new int[BinaryTransactionFormat.BLOCK_SIZE];
+    /**
+     * Fees of the current block.
+     */
+    private final int[] fees = new int[BinaryTransactionFormat.BLOCK_SIZE];
+    /**
+     * Number of transactions in the current block.
+     */
+    private int count;
+    /**
+     * Payload of the block being written, reused between blocks.
+     */
+    private byte[] payload = new byte[0];
+    /**
+     * Compressed payload, reused between blocks.
+     */
+    private byte[] compressed = new byte[0];
+    /**
+     * Whether close was called.
+     */
+    private boolean closed;
+
+    /**
+     * Constructor for the writer, writes the header.
+     * @param out Where the file is written, closed with the writer.
+     * @param compress Whether to deflate the blocks.
+     */
+    public BinaryTransactionWriter(OutputStream out, boolean compress) throws IOException
+    {
+        this.out = new DataOutputStream(out);
+        deflater = compress ? new Deflater() : null;
+        this.out.writeInt(BinaryTransactionFormat.MAGIC);
+        this.out.writeByte(BinaryTransactionFormat.VERSION);
+        this.out.writeByte(compress ? BinaryTransactionFormat.DEFLATED : 0);
+    }
+
+    /**
+     * Adds a transaction, the block is written once it's full.
+     * @param t The transaction to write.
+     */
+    public void write(Transaction t)
+    {
+        if(closed)
+            throw new RuntimeException("Writer is closed");
+        try
+        {
+            int sender = fileId(t.getSenderId());
+            int receiver = fileId(t.getReceiverId());
+            senders[count] = sender;
+            receivers[count] = receiver;
+            amounts[count] = t.getAmount();
+            fees[count] = t.getFee();
+            if(++count == BinaryTransactionFormat.BLOCK_SIZE)
+                writeBlock();
+        }
+        catch(IOException e)
+        {
+            throw new RuntimeException("Could not write transactions: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the last block and the end of the file, and closes the stream.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if(closed)
+            return;
+        try
+        {
+            if(count > 0 || numNewNames > 0)
+                writeBlock();
+            out.writeByte(0);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeInt(0);
+        }
+        finally
+        {
+            closed = true;
+            if(deflater != null)
+                deflater.end();
+            out.close();
+        }
+    }
+
+    /**
+     * The id in the file of an account, giving it the next id and adding its name to the current block if it's new.
+     * @param accountId The id in the shared AccountDictionary.
+     * @return Returns the id in the file.
+     */
+    private int fileId(int accountId) throws IOException
+    {
+        if(accountId >= fileIds.length)
+        {
+            int oldLength = fileIds.length;
+            fileIds = Arrays.copyOf(fileIds, Math.max(accountId + 1, 2 * oldLength));
+            Arrays.fill(fileIds, oldLength, fileIds.length, -1);
+        }
+        if(fileIds[accountId] >= 0)
+            return fileIds[accountId];
+        byte[] bytes = AccountDictionary.shared().name(accountId).getBytes(StandardCharsets.UTF_8);
+        // A block whose new names don't fit is written early, the transactions it holds only use names already in it.
+        if(newNames.remaining() < 4 + bytes.length)
+        {
+            if(count > 0 || numNewNames > 0)
+                writeBlock();
+            if(newNames.remaining() < 4 + bytes.length)
+                throw new RuntimeException("Name too long: " + bytes.length + " bytes");
+        }
+        newNames.putInt(bytes.length);
+        newNames.put(bytes);
+        numNewNames++;
+        fileIds[accountId] = numNames;
+        return numNames++;
+    }
+
+    /**
+     * Writes the current block and starts a new one.
+     */
+    private void writeBlock() throws IOException
+    {
+        int length = 4 + newNames.position() + 16 * count;
+        if(payload.length < length)
+            payload = new byte[length];
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        buffer.putInt(numNewNames);
+        buffer.put(newNames.array(), 0, newNames.position());
+        for(int i = 0; i < count; i++)
+            buffer.putInt(senders[i]);
+        for(int i = 0; i < count; i++)
+            buffer.putInt(receivers[i]);
+        for(int i = 0; i < count; i++)
+            buffer.putInt(amounts[i]);
+        for(int i = 0; i < count; i++)
+            buffer.putInt(fees[i]);
+
+        byte flags = 0;
+        byte[] stored = payload;
+        int storedLength = length;
+        if(deflater != null)
+        {
+            deflater.reset();
+            deflater.setInput(payload, 0, length);
+            deflater.finish();
+            if(compressed.length < length)
+                compressed = new byte[length];
+            int written = 0;
+            while(!deflater.finished() && written < compressed.length)
+                written += deflater.deflate(compressed, written, compressed.length - written);
+            // Keep the block as it is when deflating doesn't make it smaller.
+            if(deflater.finished() && written < length)
+            {
+                flags = BinaryTransactionFormat.DEFLATED;
+                stored = compressed;
+                storedLength = written;
+            }
+        }
+        out.writeByte(flags);
+        out.writeInt(count);
+        out.writeInt(length);
+        out.writeInt(storedLength);
+        out.write(stored, 0, storedLength);
+
+        newNames.clear();
+        numNewNames = 0;
+        count = 0;
+    }
+}
@@ -1,4 +1,6 @@
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
  * Represents a single block in the blockchain.
@@ -8,18 +10,31 @@ public class Block implements Comparable<Block>, Iterable<Transaction>
     /**
      * The roothash of the block from the merkle tree.
      */
-    private String rootHash;
+    private Hash rootHash;
     /**
-     * The list that contains the Transactions in the block.
+     * The hash function of the merkle tree, needed to verify proofs against the root hash.
      */
-    private SinglyLinkedList<Transaction> block;
+    private HashFunction hashFunction = HashEngine.SHA256;
+    /**
+     * How the merkle tree merged the hashes of two children, needed to verify proofs against the root hash.
+     */
+    private Combiner combiner = Combiner.LEGACY_XOR;
+    /**
+     * The array that contains the Transactions in the block, in the order they were added, doubled when full.
+     * Keeping them in an array lets a transaction be read or replaced by its position in constant time.
+     */
+    private Transaction[] block;
+    /**
+     * The number of transactions in the block.
+     */
+    private int size;
 
     /**
      * Constructor for creating a new Block instance.
      */
     public Block()
     {
-        block= new SinglyLinkedList<>();
+        block = new Transaction[16];
     }
 
     /**
@@ -28,7 +43,34 @@ public class Block implements Comparable<Block>, Iterable<Transaction>
      */
     public void addTransaction(Transaction t)
     {
-        block.add(t);
+        if(size == block.length)
+            block = Arrays.copyOf(block, 2 * size);
+        block[size++] = t;
+    }
+
+    /**
+     * Retrieves a transaction of the block.
+     * @param index The position of the transaction.
+     * @return The transaction at that position.
+     */
+    public Transaction getTransaction(int index)
+    {
+        if(index < 0 || index >= size)
+            throw new RuntimeException("Invalid index: " + index);
+        return block[index];
+    }
+
+    /**
+     * Replaces a transaction in the block.
+     * @param index The position of the transaction to replace.
+     * @param t The new transaction.
+     * @return The transaction that was replaced.
+     */
+    public Transaction setTransaction(int index, Transaction t)
+    {
+        Transaction old = getTransaction(index);
+        block[index] = t;
+        return old;
     }
 
     /**
@@ -37,14 +79,23 @@ public class Block implements Comparable<Block>, Iterable<Transaction>
      */
     public int numOfTransactions()
     {
-        return block.size();
+        return size;
+    }
+
+    /**
+     * Copies the transactions of the block into an array.
+     * @return An array of the transactions in the order they were added.
+     */
+    public Transaction[] getTransactions()
+    {
+        return Arrays.copyOf(block, size);
     }
 
     /**
      * Retrieves the root hash of the block.
      * @return The root hash of the block.
      */
-    public String getRootHash()
+    public Hash getRootHash()
     {
         return rootHash;
     }
@@ -53,18 +104,74 @@ public class Block implements Comparable<Block>, Iterable<Transaction>
      * Sets the root hash of the block.
      * @param hashCode The hash code to set as the root hash.
      */
-    public void setRootHash(String hashCode)
+    public void setRootHash(Hash hashCode)
     {
         rootHash = hashCode;
     }
 
+    /**
+     * Retrieves the hash function the merkle tree of the block was built with.
+     * @return The hash function used for the root hash.
+     */
+    public HashFunction getHashFunction()
+    {
+        return hashFunction;
+    }
+
+    /**
+     * Sets the hash function the merkle tree of the block was built with.
+     * @param hashFunction The hash function used for the root hash.
+     */
+    public void setHashFunction(HashFunction hashFunction)
+    {
+        this.hashFunction = hashFunction;
+    }
+
+    /**
+     * Retrieves how the merkle tree of the block merged the hashes of two children.
+     * @return The combiner used for the root hash.
+     */
+    public Combiner getCombiner()
+    {
+        return combiner;
+    }
+
+    /**
+     * Sets how the merkle tree of the block merged the hashes of two children.
+     * @param combiner The combiner used for the root hash.
+     */
+    public void setCombiner(Combiner combiner)
+    {
+        this.combiner = combiner;
+    }
+
     /**
      * An iterator to iterate through the Block.
      * @return Returns an iterator that iterates through the Block.
      */
     @Override
     public Iterator<Transaction> iterator() {
-        return block.iterator();
+        return new Iterator<Transaction>()
+        {
+            /**
+             * Position of the next transaction.
+             */
+            int next = 0;
+
+            @Override
+            public boolean hasNext()
+            {
+                return next < size;
+            }
+
+            @Override
+            public Transaction next()
+            {
+                if(!hasNext())
+                    throw new NoSuchElementException();
+                return block[next++];
+            }
+        };
     }
 
     /**
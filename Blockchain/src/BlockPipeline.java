@@ -0,0 +1,157 @@
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * Builds blocks while the transactions are still arriving, instead of loading them all into a queue before the Blockchain drains it.
+ * The transactions wait in a window of a fixed size ordered by fee. Once the window is full every new arrival pushes out the one with the highest fee,
+ * which goes into the current block with the same threshold rule as the Blockchain. A block is sealed and its root hash computed as soon as
+ * its fees reach the threshold, and it's handed to the callback right away. Memory is bounded by the window and the current block,
+ * whatever the size of the input, and the first block comes out after about a window of transactions.
+ * With a window at least as large as the input the blocks are the same as the ones the Blockchain makes;
+ * a smaller window only sees the highest fees among the transactions in it.
+ */
+public class BlockPipeline
+{
+    /**
+     * Minimum amount of cumulative fees that is required to seal a block.
+     */
+    private final int threshold;
+    /**
+     * Maximum number of transactions waiting in the window.
+     */
+    private final int windowSize;
+    /**
+     * Receives every block once it's sealed.
+     */
+    private final Consumer<Block> sink;
+    /**
+     * The transactions waiting, highest fee first.
+     */
+    private final AbstractPriorityLine<Transaction> window = new FeePriorityLine();
+    /**
+     * The block being filled.
+     */
+    private Block block = new Block();
+    /**
+     * Fees of the transactions in the current block before the last one added.
+     */
+    private int fees;
+    /**
+     * Number of blocks sealed.
+     */
+    private int numOfBlocks;
+
+    /**
+     * Constructor for the pipeline.
+     * @param threshold Minimum amount of cumulative fees that is required to seal a block.
+     * @param windowSize Maximum number of transactions waiting to be put in a block.
+     * @param sink Receives every block once it's sealed, with its root hash set.
+     */
+    public BlockPipeline(int threshold, int windowSize, Consumer<Block> sink)
+    {
+        if(windowSize < 1)
+            throw new RuntimeException("Invalid window size: " + windowSize);
+        this.threshold = threshold;
+        this.windowSize = windowSize;
+        this.sink = sink;
+    }
+
+    /**
+     * Runs a whole source through a pipeline.
+     * @param source The transactions, in arrival order.
+     * @param threshold Minimum amount of cumulative fees that is required to seal a block.
+     * @param windowSize Maximum number of transactions waiting to be put in a block.
+     * @param sink Receives every block once it's sealed, with its root hash set.
+     * @return Returns the number of blocks made.
+     */
+    public static int run(Iterator<Transaction> source, int threshold, int windowSize, Consumer<Block> sink)
+    {
+        BlockPipeline pipeline = new BlockPipeline(threshold, windowSize, sink);
+        while(source.hasNext())
+            pipeline.offer(source.next());
+        pipeline.finish();
+        return pipeline.numOfBlocks();
+    }
+
+    /**
+     * Runs a transaction text file through a pipeline, reading it as the blocks are made.
+     * @param pgmFile The filename of the text file.
+     * @param threshold Minimum amount of cumulative fees that is required to seal a block.
+     * @param windowSize Maximum number of transactions waiting to be put in a block.
+     * @param sink Receives every block once it's sealed, with its root hash set.
+     * @return Returns the number of blocks made.
+     */
+    public static int run(String pgmFile, int threshold, int windowSize, Consumer<Block> sink)
+    {
+        BlockPipeline pipeline = new BlockPipeline(threshold, windowSize, sink);
+        new TransactionFileReader().read(pgmFile, pipeline::offer);
+        pipeline.finish();
+        return pipeline.numOfBlocks();
+    }
+
+    /**
+     * Adds the next transaction, the one with the highest fee goes into the current block if the window is full.
+     * @param t The transaction.
+     */
+    public void offer(Transaction t)
+    {
+        window.enqueue(t);
+        if(window.size() > windowSize)
+            take(window.dequeue());
+    }
+
+    /**
+     * Puts every waiting transaction into blocks and seals the last block, once the source has run out.
+     */
+    public void finish()
+    {
+        while(!window.isEmpty())
+            take(window.dequeue());
+        if(block.numOfTransactions() > 0)
+            seal();
+    }
+
+    /**
+     * Number of blocks sealed.
+     * @return Returns the number of blocks.
+     */
+    public int numOfBlocks()
+    {
+        return numOfBlocks;
+    }
+
+    /**
+     * Number of transactions waiting in the window.
+     * @return Returns the number of transactions.
+     */
+    public int waiting()
+    {
+        return window.size();
+    }
+
+    /**
+     * Adds a transaction to the current block, sealing it when the fees reach the threshold.
+     * @param t The transaction.
+     */
+    private void take(Transaction t)
+    {
+        block.addTransaction(t);
+        if(t.getFee() + fees < threshold)
+            fees += t.getFee();
+        else
+            seal();
+    }
+
+    /**
+     * Computes the root hash of the current block, hands it to the sink and starts a new one.
+     */
+    private void seal()
+    {
+        MerkleRootCalculator.computeRoot(block, block.getHashFunction(), block.getCombiner());
+        numOfBlocks++;
+        Block sealed = block;
+        block = new Block();
+        fees = 0;
+        sink.accept(sealed);
+    }
+}
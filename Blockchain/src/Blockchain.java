@@ -2,6 +2,8 @@ import java.util.Iterator;
 
 /**
  * The class represents the entire blockchain.
+ * The root hash of every block is computed when the block is added and kept in a ChainAccumulator,
+ * so a transaction can be proven against the root hash of the whole chain.
  */
 public class Blockchain implements Iterable<Block>
 {
@@ -9,6 +11,10 @@ public class Blockchain implements Iterable<Block>
      * List that contains the blocks for the blockchain.
      */
     private SinglyLinkedList<Block> blockchain;
+    /**
+     * Commitment over the root hashes of the blocks, in the order they were added.
+     */
+    private ChainAccumulator accumulator;
 
     /**
      * The concstructor takes a priority queue and creates the linked list of blocks.
@@ -16,28 +22,89 @@ public class Blockchain implements Iterable<Block>
      * @param queue The queue that contains the transactions.
      * @param threshold is the minimum amount of cumulative fees that is required to create a new block.
      */
-    public Blockchain(PriorityLine<Transaction> queue, int threshold)
+    public Blockchain(AbstractPriorityLine<Transaction> queue, int threshold)
     {
         blockchain = new SinglyLinkedList<>();
+        accumulator = new ChainAccumulator();
         Block block = new Block();
         int fees = 0;
         while(!queue.isEmpty())
         {
-            if(queue.peek().getFee() + fees < threshold)
+            // Dequeue once, another thread may change the head of a ConcurrentMempool between a peek and a dequeue.
+            Transaction t = queue.dequeue();
+            if(t.getFee() + fees < threshold)
             {
-                fees += queue.peek().getFee();
-                block.addTransaction(queue.dequeue());
+                fees += t.getFee();
+                block.addTransaction(t);
             }
             else
             {
-                block.addTransaction(queue.dequeue());
-                blockchain.add(block);
+                block.addTransaction(t);
+                addBlock(block);
                 block = new Block();
                 fees = 0;
             }
         }
         if(block.numOfTransactions() > 0)
-            blockchain.add(block);
+            addBlock(block);
+    }
+
+    /**
+     * Adds a block to the end of the chain.
+     * Its root hash is computed with the hash function and combiner of the block and added to the chain accumulator,
+     * so the block must not be changed afterwards.
+     * @param block The block to add.
+     * @return Returns the position of the block in the chain.
+     */
+    public int addBlock(Block block)
+    {
+        MerkleRootCalculator.computeRoot(block, block.getHashFunction(), block.getCombiner());
+        blockchain.add(block);
+        return accumulator.append(block.getRootHash(), block.getHashFunction(), block.getCombiner());
+    }
+
+    /**
+     * Number of blocks in the chain.
+     * @return Returns the number of blocks.
+     */
+    public int size()
+    {
+        return blockchain.size();
+    }
+
+    /**
+     * Retrieves a block.
+     * @param index Position of the block in the chain.
+     * @return Returns the block.
+     */
+    public Block getBlock(int index)
+    {
+        if(index < 0 || index >= blockchain.size())
+            throw new RuntimeException("Invalid index: " + index);
+        return blockchain.get(index);
+    }
+
+    /**
+     * The root hash of the whole chain, covering the root hash of every block.
+     * @return Returns the root hash of the chain, or null if the chain has no blocks.
+     */
+    public Hash getChainRootHash()
+    {
+        return accumulator.getRootHash();
+    }
+
+    /**
+     * Proof that a transaction is contained in the chain, that can be verified with the root hash of the chain alone.
+     * @param index Position of the block that contains the transaction.
+     * @param transactionProof Proof extracted from the Merkle Tree of that block.
+     * @return Returns the proof against the root hash of the chain.
+     */
+    public ChainProof extractProof(int index, MerkleProof transactionProof)
+    {
+        Block block = getBlock(index);
+        if(!ChainAccumulator.leafHash(block.getRootHash(), block.getHashFunction(), block.getCombiner()).equals(accumulator.getLeafHash(index)))
+            throw new RuntimeException("Block " + index + " changed after it was added");
+        return accumulator.extractProof(index, transactionProof, block.getHashFunction(), block.getCombiner());
     }
 
     /**
@@ -0,0 +1,427 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A priority queue of transactions with a cap on how many it holds and on how much memory they are estimated to take,
+ * so ingestion at a sustained high rate keeps a predictable heap size.
+ * What happens to a transaction that arrives when the mempool is full is decided by its Policy, and evictions and rejections are counted.
+ * Transactions come out highest fee first, and in the order they were added for the same fee.
+ * All methods can be called from any number of threads.
+ */
+public class BoundedMempool extends AbstractPriorityLine<Transaction>
+{
+    /**
+     * What to do with a transaction that arrives when the mempool is full.
+     */
+    public enum Policy
+    {
+        /**
+         * Make room by removing the transactions with the lowest fees, newest first, as long as they pay less than the new one.
+         * If removing all of those would still not make room, nothing is removed and the new transaction is rejected.
+         */
+        EVICT_LOWEST_FEE,
+        /**
+         * Turn the new transaction away.
+         */
+        REJECT,
+        /**
+         * Make the producer wait until a consumer dequeues enough to make room.
+         */
+        BLOCK
+    }
+
+    /**
+     * Maximum number of transactions held.
+     */
+    private final int maxTransactions;
+    /**
+     * Maximum estimated bytes of the transactions held.
+     */
+    private final long maxBytes;
+    /**
+     * What to do with a transaction that arrives when the mempool is full.
+     */
+    private final Policy policy;
+    /**
+     * The transactions by fee, each fee in the order they were added.
+     */
+    private final TreeMap<Integer, ArrayDeque<Transaction>> byFee = new TreeMap<>();
+    /**
+     * Guards every field below.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * Signalled when transactions are removed, for producers waiting with the BLOCK policy.
+     */
+    private final Condition notFull = lock.newCondition();
+    /**
+     * Number of transactions held.
+     */
+    private int count;
+    /**
+     * Estimated bytes of the transactions held.
+     */
+    private long usedBytes;
+    /**
+     * Number of transactions removed to make room for others.
+     */
+    private long evictions;
+    /**
+     * Number of transactions turned away.
+     */
+    private long rejections;
+
+    /**
+     * Constructor for a mempool capped on the number of transactions.
+     * @param maxTransactions Maximum number of transactions held.
+     * @param policy What to do with a transaction that arrives when the mempool is full.
+     */
+    public BoundedMempool(int maxTransactions, Policy policy)
+    {
+        this(maxTransactions, Long.MAX_VALUE, policy);
+    }
+
+    /**
+     * Constructor for a mempool capped on the number of transactions and on their estimated size, whichever is reached first.
+     * @param maxTransactions Maximum number of transactions held.
+     * @param maxBytes Maximum estimated bytes of the transactions held, see Transaction.estimatedBytes.
+     * @param policy What to do with a transaction that arrives when the mempool is full.
+     */
+    public BoundedMempool(int maxTransactions, long maxBytes, Policy policy)
+    {
+        if(maxTransactions < 1 || maxBytes < 1 || policy == null)
+            throw new RuntimeException("Invalid bounds: " + maxTransactions + " transactions, " + maxBytes + " bytes");
+        this.maxTransactions = maxTransactions;
+        this.maxBytes = maxBytes;
+        this.policy = policy;
+    }
+
+    /**
+     * Adds a transaction if the policy lets it in.
+     * With the BLOCK policy this waits for room, and gives up if the thread is interrupted.
+     * @param t The transaction to add.
+     * @return Returns true if the transaction was added, false if it was rejected.
+     */
+    public boolean offer(Transaction t)
+    {
+        long bytes = t.estimatedBytes();
+        lock.lock();
+        try
+        {
+            // A transaction that could never fit is turned away whatever the policy.
+            if(bytes > maxBytes)
+            {
+                rejections++;
+                return false;
+            }
+            // Check the cheaper transactions free enough room before evicting any, so none are lost for a transaction that doesn't get in.
+            if(policy == Policy.EVICT_LOWEST_FEE && !fits(bytes) && !evictionMakesRoom(t.getFee(), bytes))
+            {
+                rejections++;
+                return false;
+            }
+            while(!fits(bytes))
+            {
+                if(policy == Policy.REJECT)
+                {
+                    rejections++;
+                    return false;
+                }
+                else if(policy == Policy.EVICT_LOWEST_FEE)
+                {
+                    Map.Entry<Integer, ArrayDeque<Transaction>> lowest = byFee.firstEntry();
+                    remove(lowest.getKey(), lowest.getValue().removeLast());
+                    evictions++;
+                }
+                else
+                {
+                    try
+                    {
+                        notFull.await();
+                    }
+                    catch(InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                        rejections++;
+                        return false;
+                    }
+                }
+            }
+
+            ArrayDeque<Transaction> line = byFee.get(t.getFee());
+            if(line == null)
+            {
+                line = new ArrayDeque<>();
+                byFee.put(t.getFee(), line);
+            }
+            line.addLast(t);
+            count++;
+            usedBytes += bytes;
+            return true;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a transaction if the policy lets it in, a rejected transaction is only counted.
+     * @param element The transaction to add.
+     */
+    @Override
+    public void enqueue(Transaction element)
+    {
+        offer(element);
+    }
+
+    /**
+     * Adds all the transactions given, in the order the iterable gives them.
+     * @param elements The transactions to add.
+     */
+    @Override
+    public void enqueueAll(Iterable<? extends Transaction> elements)
+    {
+        for(Transaction t : elements)
+            offer(t);
+    }
+
+    /**
+     * Dequeues the transaction with the highest fee.
+     * @return Returns the removed transaction.
+     */
+    @Override
+    public Transaction dequeue()
+    {
+        lock.lock();
+        try
+        {
+            if(count == 0)
+                throw new RuntimeException("Queue is empty");
+            Map.Entry<Integer, ArrayDeque<Transaction>> highest = byFee.lastEntry();
+            Transaction t = highest.getValue().removeFirst();
+            remove(highest.getKey(), t);
+            return t;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retreives the transaction with the highest fee without removing it.
+     * @return Returns the transaction to be dequeued.
+     */
+    @Override
+    public Transaction peek()
+    {
+        lock.lock();
+        try
+        {
+            if(count == 0)
+                throw new RuntimeException("Queue is empty");
+            return byFee.lastEntry().getValue().peekFirst();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The size of the queue.
+     * @return Returns the size.
+     */
+    @Override
+    public int size()
+    {
+        lock.lock();
+        try
+        {
+            return count;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Determines whether the queue is empty or not.
+     * @return Returns true if it's empty, false otherwise.
+     */
+    @Override
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    /**
+     * Iterates through a snapshot of the mempool in the order the transactions would be dequeued.
+     * @return Returns an iterator thats used to iterate through the mempool.
+     */
+    @Override
+    public Iterator<Transaction> iterator()
+    {
+        Transaction[] snapshot;
+        lock.lock();
+        try
+        {
+            snapshot = new Transaction[count];
+            int i = 0;
+            for(ArrayDeque<Transaction> line : byFee.descendingMap().values())
+            {
+                for(Transaction t : line)
+                    snapshot[i++] = t;
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        return Arrays.asList(snapshot).iterator();
+    }
+
+    /**
+     * Estimated bytes of the transactions held.
+     * @return Returns the estimated size in bytes.
+     */
+    public long getUsedBytes()
+    {
+        lock.lock();
+        try
+        {
+            return usedBytes;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Number of transactions removed to make room for others.
+     * @return Returns the number of evictions.
+     */
+    public long getEvictions()
+    {
+        lock.lock();
+        try
+        {
+            return evictions;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Number of transactions turned away, because the policy rejects them or because they could never fit.
+     * @return Returns the number of rejections.
+     */
+    public long getRejections()
+    {
+        lock.lock();
+        try
+        {
+            return rejections;
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Maximum number of transactions held.
+     * @return Returns the cap on transactions.
+     */
+    public int getMaxTransactions()
+    {
+        return maxTransactions;
+    }
+
+    /**
+     * Maximum estimated bytes of the transactions held.
+     * @return Returns the cap in bytes.
+     */
+    public long getMaxBytes()
+    {
+        return maxBytes;
+    }
+
+    /**
+     * What happens to a transaction that arrives when the mempool is full.
+     * @return Returns the policy.
+     */
+    public Policy getPolicy()
+    {
+        return policy;
+    }
+
+    /**
+     * Refuses a BoundedMempool with the BLOCK policy as the target of a load that adds every transaction before anything can dequeue them,
+     * once full it would wait forever for a consumer. Any other queue is accepted.
+     * @param queue The queue to load into.
+     */
+    public static void requireNonBlocking(AbstractPriorityLine<Transaction> queue)
+    {
+        if(queue instanceof BoundedMempool && ((BoundedMempool) queue).getPolicy() == Policy.BLOCK)
+            throw new RuntimeException("Cannot load into a BoundedMempool with the BLOCK policy, it would wait forever once full");
+    }
+
+    /**
+     * Whether a transaction of a given size fits under both caps. Must be called with the lock held.
+     * @param bytes Estimated size of the transaction.
+     * @return Returns true if it fits.
+     */
+    private boolean fits(long bytes)
+    {
+        return count < maxTransactions && usedBytes + bytes <= maxBytes;
+    }
+
+    /**
+     * Whether evicting transactions that pay less than a fee, in eviction order, makes room for a new transaction. Must be called with the lock held.
+     * @param fee Fee of the new transaction.
+     * @param bytes Estimated bytes of the new transaction.
+     * @return Returns true if enough transactions pay less than the fee.
+     */
+    private boolean evictionMakesRoom(int fee, long bytes)
+    {
+        int remaining = count;
+        long remainingBytes = usedBytes;
+        for(ArrayDeque<Transaction> line : byFee.headMap(fee, false).values())
+        {
+            Iterator<Transaction> newestFirst = line.descendingIterator();
+            while(newestFirst.hasNext())
+            {
+                remaining--;
+                remainingBytes -= newestFirst.next().estimatedBytes();
+                if(remaining < maxTransactions && remainingBytes + bytes <= maxBytes)
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Updates the bookkeeping after a transaction was taken out of its line. Must be called with the lock held.
+     * @param fee Fee of the transaction.
+     * @param t The removed transaction.
+     */
+    private void remove(int fee, Transaction t)
+    {
+        if(byFee.get(fee).isEmpty())
+            byFee.remove(fee);
+        count--;
+        usedBytes -= t.estimatedBytes();
+        notFull.signalAll();
+    }
+}
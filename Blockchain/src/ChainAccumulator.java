@@ -0,0 +1,252 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Commitment over the root hashes of every block in a chain, kept as a Merkle mountain range.
+ * The blocks are split into perfect trees whose sizes are the powers of two in the binary form of the number of blocks, largest first,
+ * so appending a block only merges the trees to its left that have the same size, like adding one to a binary counter.
+ * The root hash of the chain is the roots of those trees (the peaks) combined from left to right.
+ * A proof for one block is the path to its peak plus the other peaks, both logarithmic in the length of the chain.
+ * Each leaf commits to the root hash of its block together with the hash function and combiner its tree was built with, so a proof can't
+ * pick other tree parameters for the same root. Leaves, inner nodes and the bagging of the peaks are hashed with different prefix bytes,
+ * so no node can be passed off as a node of another kind, like a peak as a block root.
+ */
+public class ChainAccumulator
+{
+    /**
+     * The hash function used for every node.
+     */
+    public static final HashFunction HASH_FUNCTION = HashEngine.SHA256;
+    /**
+     * First byte hashed for a leaf.
+     */
+    private static final byte LEAF = 0;
+    /**
+     * First byte hashed for an inner node, followed by its left and right children so a proof also fixes the position of its block.
+     */
+    private static final byte NODE = 1;
+    /**
+     * First byte hashed when two peaks are combined.
+     */
+    private static final byte PEAKS = 2;
+
+    /**
+     * The raw 32 byte hashes of each level, level 0 holds the leaves.
+     * Level k holds one node for every complete run of 2^k blocks, node j covers blocks j*2^k to (j+1)*2^k-1.
+     */
+    private byte[][] levels = new byte[1][16 * Hash.BYTES];
+    /**
+     * Number of blocks added.
+     */
+    private int count;
+    /**
+     * Working space for hashing an inner node.
+     */
+    private final byte[] buffer = new byte[1 + 2 * Hash.BYTES];
+
+    /**
+     * Adds the next block.
+     * @param blockRootHash The root hash of the block.
+     * @param blockHashFunction The hash function the tree of the block was built with.
+     * @param blockCombiner How the tree of the block merged the hashes of two children.
+     * @return Returns the position of the block in the chain.
+     */
+    public int append(Hash blockRootHash, HashFunction blockHashFunction, Combiner blockCombiner)
+    {
+        if(blockRootHash == null)
+            throw new RuntimeException("Block has no root hash");
+        if(count == Integer.MAX_VALUE)
+            throw new RuntimeException("Too many blocks");
+        int index = count++;
+        store(0, index, leafHash(blockRootHash, blockHashFunction, blockCombiner));
+        // Every time a level completes a pair, their parent completes on the level above.
+        int level = 0;
+        int node = index;
+        while((node & 1) != 0)
+        {
+            if(level + 1 == levels.length)
+            {
+                levels = Arrays.copyOf(levels, level + 2);
+                levels[level + 1] = new byte[16 * Hash.BYTES];
+            }
+            ensureCapacity(level + 1, node / 2);
+            buffer[0] = NODE;
+            System.arraycopy(levels[level], (node - 1) * Hash.BYTES, buffer, 1, 2 * Hash.BYTES);
+            HASH_FUNCTION.hash(buffer, 0, buffer.length, levels[level + 1], (node / 2) * Hash.BYTES);
+            level++;
+            node /= 2;
+        }
+        return index;
+    }
+
+    /**
+     * Number of blocks added.
+     * @return Returns the length of the chain.
+     */
+    public int size()
+    {
+        return count;
+    }
+
+    /**
+     * The leaf that was added for a block.
+     * @param index Position of the block in the chain.
+     * @return Returns the hash committing to the root hash of the block and its tree parameters.
+     */
+    public Hash getLeafHash(int index)
+    {
+        if(index < 0 || index >= count)
+            throw new RuntimeException("Invalid index: " + index);
+        return node(0, index);
+    }
+
+    /**
+     * The root hash of the chain, the peaks combined from left to right.
+     * @return Returns the root hash of the chain, or null if no blocks were added.
+     */
+    public Hash getRootHash()
+    {
+        Hash root = null;
+        for(int level = 31; level >= 0; level--)
+        {
+            if((count >>> level & 1) == 0)
+                continue;
+            Hash peak = node(level, (count >>> level) - 1);
+            root = root == null ? peak : combinePeaks(root, peak);
+        }
+        return root;
+    }
+
+    /**
+     * Proof that a transaction is contained in a block of the chain.
+     * @param index Position of the block in the chain.
+     * @param transactionProof Proof that the transaction is contained in the block.
+     * @param blockHashFunction The hash function the tree of the block was built with.
+     * @param blockCombiner How the tree of the block merged the hashes of two children.
+     * @return Returns the proof against the root hash of the chain.
+     */
+    public ChainProof extractProof(int index, MerkleProof transactionProof, HashFunction blockHashFunction, Combiner blockCombiner)
+    {
+        if(index < 0 || index >= count)
+            throw new RuntimeException("Invalid index: " + index);
+
+        // The block is in the tree of the highest set bit of count whose run of blocks goes past the index.
+        int height = 31;
+        int start = 0;
+        while((count >>> height & 1) == 0 || start + (1 << height) <= index)
+        {
+            if((count >>> height & 1) != 0)
+                start += 1 << height;
+            height--;
+        }
+
+        Hash[] path = new Hash[height];
+        for(int level = 0; level < height; level++)
+            path[level] = node(level, (index >>> level) ^ 1);
+
+        Hash[] peaks = new Hash[Integer.bitCount(count) - 1];
+        int i = 0;
+        for(int level = 31; level >= 0; level--)
+        {
+            if((count >>> level & 1) != 0 && level != height)
+                peaks[i++] = node(level, (count >>> level) - 1);
+        }
+        return new ChainProof(transactionProof, blockHashFunction, blockCombiner, index, count, path, peaks);
+    }
+
+    /**
+     * The leaf of a block, committing to its root hash and to the parameters of its tree.
+     * @param blockRootHash The root hash of the block.
+     * @param blockHashFunction The hash function the tree of the block was built with.
+     * @param blockCombiner How the tree of the block merged the hashes of two children.
+     * @return Returns the hash of the leaf.
+     */
+    public static Hash leafHash(Hash blockRootHash, HashFunction blockHashFunction, Combiner blockCombiner)
+    {
+        // The names are prefixed with their lengths so no two sets of parameters hash the same bytes.
+        byte[] algorithm = blockHashFunction.getAlgorithm().getBytes(StandardCharsets.UTF_8);
+        byte[] combiner = blockCombiner.name().getBytes(StandardCharsets.UTF_8);
+        if(algorithm.length > 255 || combiner.length > 255)
+            throw new RuntimeException("Tree parameter name too long");
+        byte[] input = new byte[3 + algorithm.length + combiner.length + Hash.BYTES];
+        input[0] = LEAF;
+        input[1] = (byte) algorithm.length;
+        System.arraycopy(algorithm, 0, input, 2, algorithm.length);
+        input[2 + algorithm.length] = (byte) combiner.length;
+        System.arraycopy(combiner, 0, input, 3 + algorithm.length, combiner.length);
+        blockRootHash.copyTo(input, 3 + algorithm.length + combiner.length);
+        return HASH_FUNCTION.hash(input, 0, input.length);
+    }
+
+    /**
+     * An inner node of the accumulator.
+     * @param left The left child.
+     * @param right The right child.
+     * @return Returns the hash of the node.
+     */
+    public static Hash combineNodes(Hash left, Hash right)
+    {
+        return tagged(NODE, left, right);
+    }
+
+    /**
+     * Two peaks combined while bagging them from left to right.
+     * @param left The peaks to the left combined so far.
+     * @param right The next peak.
+     * @return Returns the combined hash.
+     */
+    public static Hash combinePeaks(Hash left, Hash right)
+    {
+        return tagged(PEAKS, left, right);
+    }
+
+    /**
+     * Hashes a prefix byte followed by two hashes.
+     * @param tag The prefix byte.
+     * @param left The first hash.
+     * @param right The second hash.
+     * @return Returns the hash.
+     */
+    private static Hash tagged(byte tag, Hash left, Hash right)
+    {
+        byte[] input = new byte[1 + 2 * Hash.BYTES];
+        input[0] = tag;
+        left.copyTo(input, 1);
+        right.copyTo(input, 1 + Hash.BYTES);
+        return HASH_FUNCTION.hash(input, 0, input.length);
+    }
+
+    /**
+     * Writes a node, growing its level when needed.
+     * @param level Level of the node.
+     * @param index Position of the node in its level.
+     * @param hash The hash to write.
+     */
+    private void store(int level, int index, Hash hash)
+    {
+        ensureCapacity(level, index);
+        hash.copyTo(levels[level], index * Hash.BYTES);
+    }
+
+    /**
+     * Makes sure a level has room for a node, doubling it when it doesn't.
+     * @param level Level of the node.
+     * @param index Position of the node in its level.
+     */
+    private void ensureCapacity(int level, int index)
+    {
+        if((long) (index + 1) * Hash.BYTES > levels[level].length)
+            levels[level] = Arrays.copyOf(levels[level], (int) Math.min(2L * levels[level].length, Integer.MAX_VALUE - 8));
+    }
+
+    /**
+     * The hash of a node.
+     * @param level Level of the node.
+     * @param index Position of the node in its level.
+     * @return Returns the hash of the node.
+     */
+    private Hash node(int level, int index)
+    {
+        return Hash.fromBytes(levels[level], index * Hash.BYTES);
+    }
+}
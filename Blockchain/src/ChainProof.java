@@ -0,0 +1,156 @@
+/**
+ * Proof that a transaction is contained in a block of a chain, checked against the root hash of the chain alone.
+ * It joins the proof of the transaction inside its block with the path from the block to its peak in the ChainAccumulator and the other peaks,
+ * so the root hashes of the other blocks are never needed and verification is logarithmic in both the block and the chain.
+ * The hash function and combiner of the block travel with the proof, but the leaf of the block in the accumulator commits to them,
+ * so a proof that names other parameters than the ones the block was added with doesn't reach the root hash of the chain.
+ */
+public class ChainProof
+{
+    /**
+     * Proof that the transaction is contained in the block.
+     */
+    private final MerkleProof transactionProof;
+    /**
+     * The hash function the tree of the block was built with.
+     */
+    private final HashFunction blockHashFunction;
+    /**
+     * How the tree of the block merged the hashes of two children.
+     */
+    private final Combiner blockCombiner;
+    /**
+     * Position of the block in the chain.
+     */
+    private final int blockIndex;
+    /**
+     * Number of blocks in the chain when the proof was extracted.
+     */
+    private final int numOfBlocks;
+    /**
+     * The sibling hashes from the block root hash to its peak, deepest first.
+     */
+    private final Hash[] path;
+    /**
+     * The other peaks, from left to right.
+     */
+    private final Hash[] peaks;
+
+    /**
+     * Constructor for the proof.
+     * @param transactionProof Proof that the transaction is contained in the block.
+     * @param blockHashFunction The hash function the tree of the block was built with.
+     * @param blockCombiner How the tree of the block merged the hashes of two children.
+     * @param blockIndex Position of the block in the chain.
+     * @param numOfBlocks Number of blocks in the chain when the proof was extracted.
+     * @param path The sibling hashes from the block root hash to its peak, deepest first.
+     * @param peaks The other peaks, from left to right.
+     */
+    public ChainProof(MerkleProof transactionProof, HashFunction blockHashFunction, Combiner blockCombiner, int blockIndex, int numOfBlocks, Hash[] path, Hash[] peaks)
+    {
+        if(numOfBlocks < 1 || blockIndex < 0 || blockIndex >= numOfBlocks)
+            throw new RuntimeException("Invalid index: " + blockIndex);
+        this.transactionProof = transactionProof;
+        this.blockHashFunction = blockHashFunction;
+        this.blockCombiner = blockCombiner;
+        this.blockIndex = blockIndex;
+        this.numOfBlocks = numOfBlocks;
+        this.path = path.clone();
+        this.peaks = peaks.clone();
+    }
+
+    /**
+     * Proof that the transaction is contained in the block.
+     * @return Returns the proof inside the block.
+     */
+    public MerkleProof getTransactionProof()
+    {
+        return transactionProof;
+    }
+
+    /**
+     * Position of the block in the chain.
+     * @return Returns the index of the block, counted from the first block starting at 0.
+     */
+    public int getBlockIndex()
+    {
+        return blockIndex;
+    }
+
+    /**
+     * Number of blocks in the chain when the proof was extracted.
+     * @return Returns the length of the chain the proof is for.
+     */
+    public int numOfBlocks()
+    {
+        return numOfBlocks;
+    }
+
+    /**
+     * Number of hashes in the proof, counting the proof inside the block.
+     * @return Returns the number of hashes.
+     */
+    public int size()
+    {
+        return transactionProof.size() + path.length + peaks.length;
+    }
+
+    /**
+     * Recomputes the root hash of the chain from the hash of the proven transaction.
+     * @param leafHash The hash of the proven transaction, made with the hash function of its block.
+     * @return Returns the root hash of the chain implied by the proof, or null if the proof doesn't fit the length of the chain.
+     */
+    public Hash computeRoot(Hash leafHash)
+    {
+        // Find the tree of the block the same way the accumulator does, and where its peak sits among the others.
+        int height = 31;
+        int start = 0;
+        int peak = 0;
+        while((numOfBlocks >>> height & 1) == 0 || start + (1 << height) <= blockIndex)
+        {
+            if((numOfBlocks >>> height & 1) != 0)
+            {
+                start += 1 << height;
+                peak++;
+            }
+            height--;
+        }
+        if(path.length != height || peaks.length != Integer.bitCount(numOfBlocks) - 1)
+            return null;
+
+        Hash hash = ChainAccumulator.leafHash(transactionProof.computeRoot(leafHash, blockHashFunction, blockCombiner), blockHashFunction, blockCombiner);
+        int position = blockIndex - start;
+        for(int level = 0; level < height; level++)
+        {
+            if((position >>> level & 1) != 0)
+                hash = ChainAccumulator.combineNodes(path[level], hash);
+            else
+                hash = ChainAccumulator.combineNodes(hash, path[level]);
+        }
+
+        // Combine the peaks from left to right with this one in its place.
+        Hash root = null;
+        for(int i = 0; i <= peaks.length; i++)
+        {
+            Hash next;
+            if(i < peak)
+                next = peaks[i];
+            else if(i == peak)
+                next = hash;
+            else
+                next = peaks[i - 1];
+            root = root == null ? next : ChainAccumulator.combinePeaks(root, next);
+        }
+        return root;
+    }
+
+    /**
+     * Recomputes the root hash of the chain from the proven transaction.
+     * @param t The proven transaction.
+     * @return Returns the root hash of the chain implied by the proof, or null if the proof doesn't fit the length of the chain.
+     */
+    public Hash computeRoot(Transaction t)
+    {
+        return computeRoot(blockHashFunction.hash(t.toString()));
+    }
+}
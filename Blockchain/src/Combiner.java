@@ -0,0 +1,123 @@
+/**
+ * Represents the ways two child hashes can be merged into the hash of their parent.
+ */
+public enum Combiner
+{
+    /**
+     * The original scheme: each child is hashed again in its hex form and the two results are merged with XOR.
+     * Kept so root hashes made before the other schemes existed still verify.
+     */
+    LEGACY_XOR(true)
+    {
+        @Override
+        public void combine(HashFunction hashFunction, byte[] left, int leftOffset, byte[] right, int rightOffset, byte[] output, int outputOffset)
+        {
+            // The first 64 bytes hold the hex of a child, the last 32 the digest of the right child.
+            byte[] buffer = SCRATCH.get();
+            Hash.copyHexTo(right, rightOffset, buffer, 0);
+            hashFunction.hash(buffer, 0, 2 * Hash.BYTES, buffer, 2 * Hash.BYTES);
+            Hash.copyHexTo(left, leftOffset, buffer, 0);
+            hashFunction.hash(buffer, 0, 2 * Hash.BYTES, output, outputOffset);
+            for(int i = 0; i < Hash.BYTES; i++)
+            {
+                output[outputOffset + i] ^= buffer[2 * Hash.BYTES + i];
+            }
+        }
+    },
+    /**
+     * A single hash of the 64 raw bytes of both children, the smaller hash first.
+     * Putting the smaller hash first keeps the combine commutative so a proof doesn't need to record which side each hash is on.
+     */
+    SORTED_CONCAT(true)
+    {
+        @Override
+        public void combine(HashFunction hashFunction, byte[] left, int leftOffset, byte[] right, int rightOffset, byte[] output, int outputOffset)
+        {
+            byte[] buffer = SCRATCH.get();
+            if(Hash.compare(left, leftOffset, right, rightOffset) <= 0)
+            {
+                System.arraycopy(left, leftOffset, buffer, 0, Hash.BYTES);
+                System.arraycopy(right, rightOffset, buffer, Hash.BYTES, Hash.BYTES);
+            }
+            else
+            {
+                System.arraycopy(right, rightOffset, buffer, 0, Hash.BYTES);
+                System.arraycopy(left, leftOffset, buffer, Hash.BYTES, Hash.BYTES);
+            }
+            hashFunction.hash(buffer, 0, 2 * Hash.BYTES, output, outputOffset);
+        }
+    },
+    /**
+     * A single hash of the 64 raw bytes of both children, left child first.
+     * The result depends on the order of the children, so it can only be verified with a MerkleProof that records the side of each hash.
+     */
+    ORDERED_CONCAT(false)
+    {
+        @Override
+        public void combine(HashFunction hashFunction, byte[] left, int leftOffset, byte[] right, int rightOffset, byte[] output, int outputOffset)
+        {
+            byte[] buffer = SCRATCH.get();
+            System.arraycopy(left, leftOffset, buffer, 0, Hash.BYTES);
+            System.arraycopy(right, rightOffset, buffer, Hash.BYTES, Hash.BYTES);
+            hashFunction.hash(buffer, 0, 2 * Hash.BYTES, output, outputOffset);
+        }
+    };
+
+    /**
+     * Working space for each thread, large enough for the hex of one hash and one digest.
+     */
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[3 * Hash.BYTES]);
+
+    /**
+     * Whether swapping the children gives the same parent hash.
+     */
+    private final boolean commutative;
+
+    /**
+     * Constructor for the combiner.
+     * @param commutative Whether swapping the children gives the same parent hash.
+     */
+    Combiner(boolean commutative)
+    {
+        this.commutative = commutative;
+    }
+
+    /**
+     * Whether swapping the children gives the same parent hash.
+     * Only commutative combiners can be verified with a plain list of hashes that doesn't record the side of each hash.
+     * @return Returns true if the order of the children doesn't matter, false otherwise.
+     */
+    public boolean isCommutative()
+    {
+        return commutative;
+    }
+
+    /**
+     * Merges two raw 32 byte child hashes into the hash of their parent without allocating.
+     * The output may overlap either child.
+     * @param hashFunction The hash function used to hash.
+     * @param left Array holding the hash of the left child.
+     * @param leftOffset Index of the hash of the left child.
+     * @param right Array holding the hash of the right child.
+     * @param rightOffset Index of the hash of the right child.
+     * @param output Array to write the hash of the parent to.
+     * @param outputOffset Index to write the hash of the parent at.
+     */
+    public abstract void combine(HashFunction hashFunction, byte[] left, int leftOffset, byte[] right, int rightOffset, byte[] output, int outputOffset);
+
+    /**
+     * Merges two child hashes into the hash of their parent.
+     * @param hashFunction The hash function used to hash.
+     * @param left Hash of the left child.
+     * @param right Hash of the right child.
+     * @return Returns the hash of the parent.
+     */
+    public Hash combine(HashFunction hashFunction, Hash left, Hash right)
+    {
+        byte[] buffer = new byte[2 * Hash.BYTES];
+        left.copyTo(buffer, 0);
+        right.copyTo(buffer, Hash.BYTES);
+        combine(hashFunction, buffer, 0, buffer, Hash.BYTES, buffer, 0);
+        return Hash.fromBytes(buffer, 0);
+    }
+}
@@ -0,0 +1,325 @@
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A priority queue of transactions that many threads can add to while one or more threads take from it to build blocks, without locking.
+ * Like a FeePriorityLine there is one bucket per fee, but every bucket is a lock-free queue, so producers adding different fees never touch the same memory
+ * and producers adding the same fee only meet at the tail of one queue. Fees outside the range of the buckets go to a concurrent skip list.
+ * Transactions come out highest fee first, and in the order they were added for the same fee.
+ * While producers are running the order is only as exact as the moment each transaction became visible, and size, peek and iteration are snapshots.
+ */
+public class ConcurrentMempool extends AbstractPriorityLine<Transaction>
+{
+    /**
+     * Lowest fee that has a bucket.
+     */
+    private final int minFee;
+    /**
+     * Bucket i holds the transactions whose fee is minFee+i.
+     */
+    private final ConcurrentLinkedQueue<Transaction>[] buckets;
+    /**
+     * Transactions whose fee has no bucket, ordered by fee and then by the order they were added.
+     */
+    private final ConcurrentSkipListMap<Entry, Transaction> overflow = new ConcurrentSkipListMap<>();
+    /**
+     * Sequence number given to the next transaction that goes to the overflow.
+     */
+    private final AtomicLong nextSequence = new AtomicLong();
+    /**
+     * No bucket above this one has transactions, so consumers start looking here.
+     * Producers raise it after adding, consumers lower it after finding the buckets above empty.
+     */
+    private final AtomicInteger highest = new AtomicInteger(-1);
+    /**
+     * Number of transactions in the mempool.
+     */
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Constructor for the mempool, with buckets for the fees 0 to 1023.
+     */
+    public ConcurrentMempool()
+    {
+        this(0, 1023);
+    }
+
+    /**
+     * Constructor for the mempool.
+     * @param minFee Lowest fee that has a bucket.
+     * @param maxFee Highest fee that has a bucket.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ConcurrentMempool(int minFee, int maxFee)
+    {
+        if(maxFee < minFee || (long) maxFee - minFee >= 1 << 24)
+            throw new RuntimeException("Invalid fee range: " + minFee + " to " + maxFee);
+        this.minFee = minFee;
+        buckets = (ConcurrentLinkedQueue<Transaction>[]) new ConcurrentLinkedQueue[maxFee - minFee + 1];
+        for(int i = 0; i < buckets.length; i++)
+            buckets[i] = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Adds a transaction, it can be called from any number of threads at the same time.
+     * @param element The transaction to add.
+     */
+    @Override
+    public void enqueue(Transaction element)
+    {
+        long index = (long) element.getFee() - minFee;
+        if(index < 0 || index >= buckets.length)
+        {
+            overflow.put(new Entry(element.getFee(), nextSequence.getAndIncrement()), element);
+        }
+        else
+        {
+            buckets[(int) index].add(element);
+            raise((int) index);
+        }
+        // Counted only once it can be found, so a consumer that sees a non-empty mempool always finds something.
+        size.incrementAndGet();
+    }
+
+    /**
+     * Adds all the transactions given, in the order the iterable gives them.
+     * @param elements The transactions to add.
+     */
+    @Override
+    public void enqueueAll(Iterable<? extends Transaction> elements)
+    {
+        for(Transaction t : elements)
+            enqueue(t);
+    }
+
+    /**
+     * Removes the transaction with the highest fee.
+     * @return Returns the removed transaction, or null if the mempool is empty.
+     */
+    public Transaction poll()
+    {
+        while(true)
+        {
+            int top = highest.get();
+            int bucket = top;
+            while(bucket >= 0 && buckets[bucket].isEmpty())
+                bucket--;
+            if(bucket < top)
+                lower(top, bucket);
+
+            Map.Entry<Entry, Transaction> first = overflow.firstEntry();
+            if(first != null && (bucket < 0 || first.getKey().fee > minFee + bucket))
+            {
+                first = overflow.pollFirstEntry();
+                if(first == null)
+                    continue;
+                size.decrementAndGet();
+                return first.getValue();
+            }
+            if(bucket < 0)
+                return null;
+            Transaction t = buckets[bucket].poll();
+            // Another consumer may have emptied the bucket since it was checked.
+            if(t != null)
+            {
+                size.decrementAndGet();
+                return t;
+            }
+        }
+    }
+
+    /**
+     * Dequeues the transaction with the highest fee.
+     * @return Returns the removed transaction.
+     */
+    @Override
+    public Transaction dequeue()
+    {
+        Transaction t = poll();
+        if(t == null)
+            throw new RuntimeException("Queue is empty");
+        return t;
+    }
+
+    /**
+     * Moves the transactions with the highest fees into a block, as a single batch for one block builder.
+     * @param block The block to add the transactions to.
+     * @param maxTransactions Maximum number of transactions to move.
+     * @return Returns the number of transactions moved, less than the maximum only if the mempool ran empty.
+     */
+    public int drainTo(Block block, int maxTransactions)
+    {
+        int moved = 0;
+        while(moved < maxTransactions)
+        {
+            Transaction t = poll();
+            if(t == null)
+                break;
+            block.addTransaction(t);
+            moved++;
+        }
+        return moved;
+    }
+
+    /**
+     * The number of transactions in the mempool when it was read.
+     * @return Returns the size.
+     */
+    @Override
+    public int size()
+    {
+        return Math.max(size.get(), 0);
+    }
+
+    /**
+     * Determines whether the mempool was empty when it was read.
+     * @return Returns true if it's empty, false otherwise.
+     */
+    @Override
+    public boolean isEmpty()
+    {
+        return size.get() <= 0;
+    }
+
+    /**
+     * Retreives the transaction with the highest fee without removing it, another thread may remove it first.
+     * @return Returns the transaction.
+     */
+    @Override
+    public Transaction peek()
+    {
+        while(true)
+        {
+            int bucket = highest.get();
+            while(bucket >= 0 && buckets[bucket].isEmpty())
+                bucket--;
+            Map.Entry<Entry, Transaction> first = overflow.firstEntry();
+            if(first != null && (bucket < 0 || first.getKey().fee > minFee + bucket))
+                return first.getValue();
+            if(bucket < 0)
+                throw new RuntimeException("Queue is empty");
+            Transaction t = buckets[bucket].peek();
+            if(t != null)
+                return t;
+        }
+    }
+
+    /**
+     * Iterates through the mempool highest fee first without removing anything.
+     * Transactions added or removed while iterating may or may not be seen.
+     * @return Returns an iterator thats used to iterate through the mempool.
+     */
+    @Override
+    public Iterator<Transaction> iterator()
+    {
+        final Iterator<Map.Entry<Entry, Transaction>> overflowIterator = overflow.entrySet().iterator();
+        return new Iterator<Transaction>()
+        {
+            /**
+             * Next transaction of the overflow, null when there are none left.
+             */
+            private Map.Entry<Entry, Transaction> nextOverflow = overflowIterator.hasNext() ? overflowIterator.next() : null;
+            /**
+             * Bucket being walked.
+             */
+            private int bucket = buckets.length - 1;
+            /**
+             * Iterator over the bucket being walked.
+             */
+            private Iterator<Transaction> bucketIterator = buckets[bucket].iterator();
+
+            @Override
+            public boolean hasNext()
+            {
+                while(!bucketIterator.hasNext() && bucket > 0)
+                    bucketIterator = buckets[--bucket].iterator();
+                return nextOverflow != null || bucketIterator.hasNext();
+            }
+
+            @Override
+            public Transaction next()
+            {
+                if(!hasNext())
+                    throw new NoSuchElementException();
+                if(!bucketIterator.hasNext() || (nextOverflow != null && nextOverflow.getKey().fee > minFee + bucket))
+                {
+                    Transaction t = nextOverflow.getValue();
+                    nextOverflow = overflowIterator.hasNext() ? overflowIterator.next() : null;
+                    return t;
+                }
+                return bucketIterator.next();
+            }
+        };
+    }
+
+    /**
+     * Makes sure consumers start looking at or above a bucket.
+     * @param bucket Index of a bucket that has a transaction.
+     */
+    private void raise(int bucket)
+    {
+        int top = highest.get();
+        while(top < bucket && !highest.compareAndSet(top, bucket))
+            top = highest.get();
+    }
+
+    /**
+     * Moves the starting point of consumers down after the buckets above were seen empty.
+     * A producer may have added to one of those buckets after it was checked without raising the starting point,
+     * so they are checked again once it has moved.
+     * @param top The starting point that was read.
+     * @param bucket The highest bucket found with a transaction, -1 if none.
+     */
+    private void lower(int top, int bucket)
+    {
+        if(!highest.compareAndSet(top, bucket))
+            return;
+        for(int i = top; i > bucket; i--)
+        {
+            if(!buckets[i].isEmpty())
+            {
+                raise(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Position of a transaction in the overflow: higher fees first, then the order they were added.
+     */
+    private static final class Entry implements Comparable<Entry>
+    {
+        /**
+         * Fee of the transaction.
+         */
+        private final int fee;
+        /**
+         * When the transaction was added.
+         */
+        private final long sequence;
+
+        /**
+         * Constructor for the entry.
+         * @param fee Fee of the transaction.
+         * @param sequence When the transaction was added.
+         */
+        public Entry(int fee, long sequence)
+        {
+            this.fee = fee;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Entry o)
+        {
+            if(fee != o.fee)
+                return fee > o.fee ? -1 : 1;
+            return Long.compare(sequence, o.sequence);
+        }
+    }
+}
@@ -0,0 +1,330 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A priority queue of transactions with one bucket per fee, since fees are small integers.
+ * Enqueue is O(1) and dequeue is O(1) amortized: the highest non-empty bucket is found with a bitmap of the buckets in use,
+ * and each bucket is a first in first out line, so transactions with the same fee come out in the order they went in, like a PriorityLine.
+ * Fees outside the range of the buckets go to an overflow PriorityLine so a few outliers don't require a huge table; it allocates nothing until the first outlier.
+ */
+public class FeePriorityLine extends AbstractPriorityLine<Transaction>
+{
+    /**
+     * Lowest fee that has a bucket.
+     */
+    private final int minFee;
+    /**
+     * Bucket i holds the transactions whose fee is minFee+i.
+     */
+    private final Bucket[] buckets;
+    /**
+     * Bit i%64 of word i/64 is set when bucket i is not empty.
+     */
+    private final long[] used;
+    /**
+     * Transactions whose fee has no bucket.
+     */
+    private final PriorityLine<Transaction> overflow = new PriorityLine<>();
+    /**
+     * Number of transactions in the buckets.
+     */
+    private int bucketed;
+
+    /**
+     * Constructor for the queue, with buckets for the fees 0 to 1023.
+     */
+    public FeePriorityLine()
+    {
+        this(0, 1023);
+    }
+
+    /**
+     * Constructor for the queue.
+     * @param minFee Lowest fee that has a bucket.
+     * @param maxFee Highest fee that has a bucket.
+     */
+    public FeePriorityLine(int minFee, int maxFee)
+    {
+        if(maxFee < minFee || (long) maxFee - minFee >= 1 << 24)
+            throw new RuntimeException("Invalid fee range: " + minFee + " to " + maxFee);
+        this.minFee = minFee;
+        buckets = new Bucket[maxFee - minFee + 1];
+        used = new long[(buckets.length + 63) / 64];
+    }
+
+    /**
+     * Inserts the transaction after every other transaction with the same fee.
+     * @param element The transaction to insert.
+     */
+    @Override
+    public void enqueue(Transaction element)
+    {
+        int index = bucketOf(element.getFee());
+        if(index < 0)
+        {
+            overflow.enqueue(element);
+            return;
+        }
+        if(buckets[index] == null)
+            buckets[index] = new Bucket();
+        buckets[index].add(element);
+        used[index >>> 6] |= 1L << index;
+        bucketed++;
+    }
+
+    /**
+     * Inserts all the transactions given, in the order the iterable gives them.
+     * @param elements The transactions to insert.
+     */
+    @Override
+    public void enqueueAll(Iterable<? extends Transaction> elements)
+    {
+        for(Transaction t : elements)
+            enqueue(t);
+    }
+
+    /**
+     * Dequeues the transaction with the highest fee, the one enqueued first if several have that fee.
+     * @return Returns the removed transaction.
+     */
+    @Override
+    public Transaction dequeue()
+    {
+        int index = highestBucket();
+        if(index < 0 || (!overflow.isEmpty() && overflow.peek().getFee() > minFee + index))
+        {
+            if(overflow.isEmpty())
+                throw new RuntimeException("Queue is empty");
+            return overflow.dequeue();
+        }
+        Transaction t = buckets[index].remove();
+        if(buckets[index].isEmpty())
+            used[index >>> 6] &= ~(1L << index);
+        bucketed--;
+        return t;
+    }
+
+    /**
+     * The size of the queue.
+     * @return Returns the size.
+     */
+    @Override
+    public int size()
+    {
+        return bucketed + overflow.size();
+    }
+
+    /**
+     * Determines whether the queue is empty or not.
+     * @return Returns true if it's empty, false otherwise.
+     */
+    @Override
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    /**
+     * Retreives the transaction that will be removed when dequeue is called.
+     * @return Returns the transaction to be dequeued.
+     */
+    @Override
+    public Transaction peek()
+    {
+        int index = highestBucket();
+        if(index < 0 || (!overflow.isEmpty() && overflow.peek().getFee() > minFee + index))
+        {
+            if(overflow.isEmpty())
+                throw new RuntimeException("Queue is empty");
+            return overflow.peek();
+        }
+        return buckets[index].peek();
+    }
+
+    /**
+     * Iterates through the queue in the order the transactions would be dequeued, without removing them.
+     * @return Returns an iterator thats used to iterate through the queue.
+     */
+    @Override
+    public Iterator<Transaction> iterator()
+    {
+        final Iterator<Transaction> overflowIterator = overflow.iterator();
+        return new Iterator<Transaction>()
+        {
+            /**
+             * Next transaction of the overflow, null when there are none left.
+             */
+            private Transaction nextOverflow = overflowIterator.hasNext() ? overflowIterator.next() : null;
+            /**
+             * Bucket being walked, or -1 when there are none left.
+             */
+            private int bucket = highestBucket();
+            /**
+             * Position in the bucket being walked.
+             */
+            private int position;
+
+            @Override
+            public boolean hasNext()
+            {
+                return nextOverflow != null || bucket >= 0;
+            }
+
+            @Override
+            public Transaction next()
+            {
+                if(!hasNext())
+                    throw new NoSuchElementException();
+                if(bucket < 0 || (nextOverflow != null && nextOverflow.getFee() > minFee + bucket))
+                {
+                    Transaction t = nextOverflow;
+                    nextOverflow = overflowIterator.hasNext() ? overflowIterator.next() : null;
+                    return t;
+                }
+                Transaction t = buckets[bucket].get(position++);
+                if(position == buckets[bucket].size())
+                {
+                    bucket = highestBucketBelow(bucket);
+                    position = 0;
+                }
+                return t;
+            }
+        };
+    }
+
+    /**
+     * The bucket of a fee.
+     * @param fee The fee.
+     * @return Returns the index of the bucket, or -1 if the fee has none.
+     */
+    private int bucketOf(int fee)
+    {
+        long index = (long) fee - minFee;
+        if(index < 0 || index >= buckets.length)
+            return -1;
+        return (int) index;
+    }
+
+    /**
+     * The highest bucket that isn't empty.
+     * @return Returns the index of the bucket, or -1 if all are empty.
+     */
+    private int highestBucket()
+    {
+        return highestBucketBelow(buckets.length);
+    }
+
+    /**
+     * The highest bucket under a given one that isn't empty.
+     * @param limit Index of the bucket to look under.
+     * @return Returns the index of the bucket, or -1 if all of them are empty.
+     */
+    private int highestBucketBelow(int limit)
+    {
+        if(limit <= 0)
+            return -1;
+        int word = (limit - 1) >>> 6;
+        // Keep only the bits under the limit in the first word looked at.
+        long bits = used[word] & (-1L >>> (63 - ((limit - 1) & 63)));
+        while(bits == 0)
+        {
+            if(--word < 0)
+                return -1;
+            bits = used[word];
+        }
+        return (word << 6) + 63 - Long.numberOfLeadingZeros(bits);
+    }
+
+    /**
+     * A first in first out line of the transactions that have the same fee, stored in an array that is reused once it empties.
+     */
+    private static class Bucket
+    {
+        /**
+         * The transactions, the first one in line is at index head.
+         */
+        private Transaction[] items = new Transaction[4];
+        /**
+         * Index of the first transaction in line.
+         */
+        private int head;
+        /**
+         * Index after the last transaction in line.
+         */
+        private int tail;
+
+        /**
+         * Adds a transaction at the end of the line.
+         * @param t The transaction to add.
+         */
+        public void add(Transaction t)
+        {
+            if(tail == items.length)
+            {
+                // Slide the line back to the start, into a larger array unless half of it was already dequeued.
+                Transaction[] moved = head >= items.length / 2 ? items : new Transaction[2 * items.length];
+                System.arraycopy(items, head, moved, 0, tail - head);
+                if(moved == items)
+                    Arrays.fill(items, tail - head, tail, null);
+                items = moved;
+                tail -= head;
+                head = 0;
+            }
+            items[tail++] = t;
+        }
+
+        /**
+         * Removes the first transaction in line.
+         * @return Returns the removed transaction.
+         */
+        public Transaction remove()
+        {
+            Transaction t = items[head];
+            items[head++] = null;
+            if(head == tail)
+            {
+                head = 0;
+                tail = 0;
+            }
+            return t;
+        }
+
+        /**
+         * The first transaction in line.
+         * @return Returns the transaction.
+         */
+        public Transaction peek()
+        {
+            return items[head];
+        }
+
+        /**
+         * A transaction in line.
+         * @param index Position in line, 0 is the first.
+         * @return Returns the transaction.
+         */
+        public Transaction get(int index)
+        {
+            return items[head + index];
+        }
+
+        /**
+         * Number of transactions in line.
+         * @return Returns the size.
+         */
+        public int size()
+        {
+            return tail - head;
+        }
+
+        /**
+         * Determines whether the line is empty.
+         * @return Returns true if it's empty, false otherwise.
+         */
+        public boolean isEmpty()
+        {
+            return head == tail;
+        }
+    }
+}
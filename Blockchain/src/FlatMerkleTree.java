@@ -0,0 +1,263 @@
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Represents the Merkle Tree of a single Block, stored in one contiguous array instead of linked nodes.
+ * The nodes are laid out like a binary heap: the root is node 1 and the children of node i are nodes 2i and 2i+1,
+ * so the leaves are nodes numOfLeaves to 2*numOfLeaves-1 and each level of the tree is a consecutive run of the array.
+ * The tree is immutable once constructed, so a single tree can serve proofs and traversals to many threads at the same time without locking.
+ */
+public class FlatMerkleTree
+{
+    /**
+     * Largest array length that every JVM can allocate.
+     */
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    /**
+     * The raw 32 byte hash of node i is stored at index 32*i, the first 32 bytes are unused.
+     */
+    private final byte[] nodes;
+    /**
+     * Number of leaves in the perfect tree, minimum is 2.
+     */
+    private final int numOfLeaves;
+    /**
+     * Height of the tree.
+     */
+    private final int height;
+    /**
+     * Position of the leaf of each transaction hash, looking the hashes up in the leaf level of the array.
+     */
+    private final LeafIndex leafIndex;
+    /**
+     * The hash function used for the leaves and inner nodes.
+     */
+    private final HashFunction hashFunction;
+    /**
+     * How the hashes of two children are merged into their parent.
+     */
+    private final Combiner combiner;
+
+    /**
+     * The constructor creates the tree and sends the hash of the root to the block object.
+     * The tree is hashed with SHA-256 and the children of every inner node are merged with the legacy XOR scheme, like a MerkleTree.
+     * @param block The Block that the Merkle Tree will be created for.
+     */
+    public FlatMerkleTree(Block block)
+    {
+        this(block, HashEngine.SHA256, Combiner.LEGACY_XOR);
+    }
+
+    /**
+     * The constructor creates the tree and sends the hash of the root, the hash function and the combiner used to the block object.
+     * @param block The Block that the Merkle Tree will be created for.
+     * @param hashFunction The hash function used for the leaves and inner nodes.
+     * @param combiner How the hashes of two children are merged into their parent.
+     */
+    public FlatMerkleTree(Block block, HashFunction hashFunction, Combiner combiner)
+    {
+        this.hashFunction = hashFunction;
+        this.combiner = combiner;
+        // Calculates how many leaf nodes we need to make a perfect tree.
+        int leaves = 2;
+        while(leaves < block.numOfTransactions())
+            leaves *= 2;
+        numOfLeaves = leaves;
+        // Calculates the height of the tree.
+        height = Integer.numberOfTrailingZeros(numOfLeaves);
+
+        // The array holds every node, it can't be larger than the largest Java array.
+        long size = 2L * numOfLeaves * Hash.BYTES;
+        if(size > MAX_ARRAY_LENGTH)
+            throw new RuntimeException("Block too large for a FlatMerkleTree: " + block.numOfTransactions() + " transactions need " + size + " bytes");
+        nodes = new byte[(int) size];
+        // Hash and index the leaves, a transaction that appears twice is proven by its first leaf.
+        int count = 0;
+        for(Transaction t : block)
+        {
+            hashString(t.toString(), numOfLeaves + count);
+            count++;
+        }
+        leafIndex = new LeafIndex(count, i -> hash(numOfLeaves + i));
+        // Combine level by level, nodes whose leaves are all padding are copied from the shared table instead of being hashed.
+        PaddingHashes paddingHashes = PaddingHashes.of(hashFunction, combiner);
+        for(int level = 0; level <= height; level++)
+        {
+            int first = numOfLeaves >> level;
+            int real = (count + (1 << level) - 1) >> level;
+            if(level > 0)
+            {
+                for(int i = first; i < first + real; i++)
+                    combiner.combine(hashFunction, nodes, 2 * i * Hash.BYTES, nodes, (2 * i + 1) * Hash.BYTES, nodes, i * Hash.BYTES);
+            }
+            for(int i = first + real; i < 2 * first; i++)
+                paddingHashes.level(level).copyTo(nodes, i * Hash.BYTES);
+        }
+
+        // Set the rootHash for the block.
+        block.setRootHash(hash(1));
+        block.setHashFunction(hashFunction);
+        block.setCombiner(combiner);
+    }
+
+    /**
+     * The hash of the root.
+     * @return Returns the root hash of the tree.
+     */
+    public Hash getRootHash()
+    {
+        return hash(1);
+    }
+
+    /**
+     * The hash function used for the leaves and inner nodes.
+     * @return Returns the hash function of the tree.
+     */
+    public HashFunction getHashFunction()
+    {
+        return hashFunction;
+    }
+
+    /**
+     * How the hashes of two children are merged into their parent.
+     * @return Returns the combiner of the tree.
+     */
+    public Combiner getCombiner()
+    {
+        return combiner;
+    }
+
+    /**
+     * The height of the tree.
+     * @return Returns the height of the tree.
+     */
+    public int height()
+    {
+        return height;
+    }
+
+    /**
+     * The number of inner nodes in the tree.
+     * @return Returns the number of inner nodes.
+     */
+    public int innerNodes()
+    {
+        return numOfLeaves-1;
+    }
+
+    /**
+     * Traverses the tree in level order.
+     * @return Returns a list of the hash codes contained in the tree by walking the tree in a level-order.
+     */
+    public SinglyLinkedList<Hash> breadthFirstTraversal()
+    {
+        // The array is already in level order.
+        SinglyLinkedList<Hash> list = new SinglyLinkedList<>();
+        for(int i = 1; i < 2 * numOfLeaves; i++)
+            list.add(hash(i));
+        return list;
+    }
+
+    /**
+     * Traverses the tree in either post, pre, or in order.
+     * @param order Is an enumeration representing the three possible depth-first traversals.
+     * @return Returns a list of the hash codes contained in the tree by walking the tree in a certain order.
+     */
+    public SinglyLinkedList<Hash> depthFirstTraversal(Order order)
+    {
+        SinglyLinkedList<Hash> list = new SinglyLinkedList<>();
+        depthFirst(1, order, list);
+        return list;
+    }
+
+    /**
+     * List of the hash codes that are required to prove that a transaction is contained in the block that this Merkle Tree encodes.
+     * The head of the list is the deepest hash code and the tail of the list is the top-most hash code required for the proof.
+     * The root hash code is not added to this list because it's already stored inside each Block.
+     * @param t Transaction to prove.
+     * @return Returns the list of hashs need for the proof, empty if the transaction isn't in the tree.
+     */
+    public SinglyLinkedList<Hash> extractProof(Transaction t)
+    {
+        MerkleProof proof = extractMerkleProof(t);
+        if(proof == null)
+            return new SinglyLinkedList<>();
+        return proof.toList();
+    }
+
+    /**
+     * Proof that a transaction is contained in the block that this Merkle Tree encodes, recording the side of every hash.
+     * @param t Transaction to prove.
+     * @return Returns the proof, or null if the transaction isn't in the tree.
+     */
+    public MerkleProof extractMerkleProof(Transaction t)
+    {
+        int index = leafIndex.find(hashFunction.hash(t.toString()));
+        if(index < 0)
+            return null;
+
+        Hash[] siblings = new Hash[height];
+        long leftSides = 0;
+        // The sibling of node i is node i^1, and it's on the left when i is a right child.
+        int node = numOfLeaves + index;
+        for(int level = 0; level < height; level++, node /= 2)
+        {
+            siblings[level] = hash(node ^ 1);
+            if((node & 1) != 0)
+                leftSides |= 1L << level;
+        }
+        return new MerkleProof(index, siblings, leftSides);
+    }
+
+    /**
+     * Proof that several transactions are contained in the block that this Merkle Tree encodes.
+     * Hashes shared by the paths of several transactions are included once, and hashes that can be computed from the transactions are left out.
+     * @param transactions Transactions to prove.
+     * @return Returns the proof, or null if one of the transactions isn't in the tree.
+     */
+    public MerkleMultiProof extractMultiProof(Iterable<Transaction> transactions)
+    {
+        return MerkleMultiProof.extract(transactions, hashFunction, leafIndex, height, (level, index) -> hash((numOfLeaves >> level) + index));
+    }
+
+    /**
+     * Recursive helper method for the depth first traversals.
+     * @param node Index of the current node.
+     * @param order The order of the traversal.
+     * @param list List that the hashes are added to.
+     */
+    private void depthFirst(int node, Order order, SinglyLinkedList<Hash> list)
+    {
+        if(node >= 2 * numOfLeaves)
+            return;
+        if(order == Order.PREORDER)
+            list.add(hash(node));
+        depthFirst(2 * node, order, list);
+        if(order == Order.INORDER)
+            list.add(hash(node));
+        depthFirst(2 * node + 1, order, list);
+        if(order == Order.POSTORDER)
+            list.add(hash(node));
+    }
+
+    /**
+     * Hashes a string into a node.
+     * @param input String to hash.
+     * @param node Index of the node.
+     */
+    private void hashString(String input, int node)
+    {
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        hashFunction.hash(bytes, 0, bytes.length, nodes, node * Hash.BYTES);
+    }
+
+    /**
+     * The hash of a node.
+     * @param node Index of the node.
+     * @return Returns the hash of the node.
+     */
+    private Hash hash(int node)
+    {
+        return Hash.fromBytes(nodes, node * Hash.BYTES);
+    }
+}
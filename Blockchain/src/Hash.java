@@ -0,0 +1,264 @@
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An immutable 256-bit hash code.
+ * The 32 bytes of the digest are packed big-endian into four longs so a hash costs a single small object,
+ * hex is only produced when the hash is displayed.
+ */
+public final class Hash implements Comparable<Hash>
+{
+    /**
+     * Number of bytes in a hash.
+     */
+    public static final int BYTES = 32;
+    /**
+     * Digits used when encoding a hash to hex.
+     */
+    private static final byte[] HEX_DIGITS = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+
+    /**
+     * Bytes 0 to 7 of the hash.
+     */
+    private final long word0;
+    /**
+     * Bytes 8 to 15 of the hash.
+     */
+    private final long word1;
+    /**
+     * Bytes 16 to 23 of the hash.
+     */
+    private final long word2;
+    /**
+     * Bytes 24 to 31 of the hash.
+     */
+    private final long word3;
+
+    /**
+     * Constructor for the hash.
+     * @param word0 Bytes 0 to 7 of the hash.
+     * @param word1 Bytes 8 to 15 of the hash.
+     * @param word2 Bytes 16 to 23 of the hash.
+     * @param word3 Bytes 24 to 31 of the hash.
+     */
+    private Hash(long word0, long word1, long word2, long word3)
+    {
+        this.word0 = word0;
+        this.word1 = word1;
+        this.word2 = word2;
+        this.word3 = word3;
+    }
+
+    /**
+     * Creates a hash from 32 raw bytes.
+     * @param bytes The array that holds the digest.
+     * @param offset The index of the first byte of the digest.
+     * @return Returns the hash.
+     */
+    public static Hash fromBytes(byte[] bytes, int offset)
+    {
+        if(offset < 0 || offset + BYTES > bytes.length)
+            throw new RuntimeException("Invalid offset: " + offset);
+        return new Hash(readLong(bytes, offset), readLong(bytes, offset + 8), readLong(bytes, offset + 16), readLong(bytes, offset + 24));
+    }
+
+    /**
+     * Creates a hash from its 64 character hex form.
+     * @param hex The hex string.
+     * @return Returns the hash.
+     */
+    public static Hash fromHex(String hex)
+    {
+        if(hex == null || hex.length() != 2 * BYTES)
+            throw new RuntimeException("Invalid hash: " + hex);
+        byte[] bytes = new byte[BYTES];
+        for(int i = 0; i < BYTES; i++)
+        {
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if(high < 0 || low < 0)
+                throw new RuntimeException("Invalid hash: " + hex);
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return fromBytes(bytes, 0);
+    }
+
+    /**
+     * Copies the raw bytes of the hash into an array.
+     * @param dest The array to write to.
+     * @param offset The index to write the first byte at.
+     */
+    public void copyTo(byte[] dest, int offset)
+    {
+        writeLong(word0, dest, offset);
+        writeLong(word1, dest, offset + 8);
+        writeLong(word2, dest, offset + 16);
+        writeLong(word3, dest, offset + 24);
+    }
+
+    /**
+     * The raw bytes of the hash.
+     * @return Returns a new array holding the 32 bytes of the hash.
+     */
+    public byte[] toBytes()
+    {
+        byte[] bytes = new byte[BYTES];
+        copyTo(bytes, 0);
+        return bytes;
+    }
+
+    /**
+     * Writes the lowercase hex form of the hash as 64 ASCII bytes.
+     * @param dest The array to write to.
+     * @param offset The index to write the first character at.
+     */
+    public void copyHexTo(byte[] dest, int offset)
+    {
+        writeHex(word0, dest, offset);
+        writeHex(word1, dest, offset + 16);
+        writeHex(word2, dest, offset + 32);
+        writeHex(word3, dest, offset + 48);
+    }
+
+    /**
+     * The lowercase hex form of the hash.
+     * @return Returns a 64 character hex string.
+     */
+    public String toHex()
+    {
+        byte[] hex = new byte[2 * BYTES];
+        copyHexTo(hex, 0);
+        return new String(hex, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Converts the hash into a string.
+     * @return Returns the hex form of the hash.
+     */
+    @Override
+    public String toString()
+    {
+        return toHex();
+    }
+
+    /**
+     * Two hashes are equal when all of their bytes are equal.
+     * @param o The object to compare to.
+     * @return Returns true if the hashes are equal, false otherwise.
+     */
+    @Override
+    public boolean equals(Object o)
+    {
+        if(this == o)
+            return true;
+        if(!(o instanceof Hash))
+            return false;
+        Hash h = (Hash) o;
+        return word0 == h.word0 && word1 == h.word1 && word2 == h.word2 && word3 == h.word3;
+    }
+
+    /**
+     * The digest is already uniformly distributed, so the hash code is taken from its first bytes.
+     * @return Returns the hash code.
+     */
+    @Override
+    public int hashCode()
+    {
+        return (int) (word0 ^ (word0 >>> 32));
+    }
+
+    /**
+     * Hashes are ordered the same way as their hex strings, byte by byte as unsigned values.
+     * @param o The hash to compare to.
+     * @return Returns a negative integer, zero, or a positive integer as this object is less than, equal to, or greater than the specified object.
+     */
+    @Override
+    public int compareTo(Hash o)
+    {
+        if(word0 != o.word0)
+            return Long.compareUnsigned(word0, o.word0);
+        if(word1 != o.word1)
+            return Long.compareUnsigned(word1, o.word1);
+        if(word2 != o.word2)
+            return Long.compareUnsigned(word2, o.word2);
+        return Long.compareUnsigned(word3, o.word3);
+    }
+
+    /**
+     * Writes the lowercase hex form of a raw 32 byte hash as 64 ASCII bytes.
+     * @param hash Array holding the raw hash.
+     * @param offset Index of the first byte of the hash.
+     * @param dest The array to write to.
+     * @param destOffset The index to write the first character at.
+     */
+    public static void copyHexTo(byte[] hash, int offset, byte[] dest, int destOffset)
+    {
+        for(int i = 0; i < BYTES; i++)
+        {
+            dest[destOffset + 2 * i] = HEX_DIGITS[(hash[offset + i] >>> 4) & 0xf];
+            dest[destOffset + 2 * i + 1] = HEX_DIGITS[hash[offset + i] & 0xf];
+        }
+    }
+
+    /**
+     * Compares two raw 32 byte hashes in the same order as compareTo.
+     * @param a Array holding the first hash.
+     * @param aOffset Index of the first hash.
+     * @param b Array holding the second hash.
+     * @param bOffset Index of the second hash.
+     * @return Returns a negative integer, zero, or a positive integer as the first hash is less than, equal to, or greater than the second.
+     */
+    public static int compare(byte[] a, int aOffset, byte[] b, int bOffset)
+    {
+        for(int i = 0; i < BYTES; i++)
+        {
+            int difference = (a[aOffset + i] & 0xff) - (b[bOffset + i] & 0xff);
+            if(difference != 0)
+                return difference;
+        }
+        return 0;
+    }
+
+    /**
+     * Reads eight bytes big-endian.
+     * @param bytes The array to read from.
+     * @param offset The index of the first byte.
+     * @return Returns the bytes as a long.
+     */
+    private static long readLong(byte[] bytes, int offset)
+    {
+        long value = 0;
+        for(int i = 0; i < 8; i++)
+            value = (value << 8) | (bytes[offset + i] & 0xff);
+        return value;
+    }
+
+    /**
+     * Writes eight bytes big-endian.
+     * @param value The long to write.
+     * @param dest The array to write to.
+     * @param offset The index of the first byte.
+     */
+    private static void writeLong(long value, byte[] dest, int offset)
+    {
+        for(int i = 7; i >= 0; i--)
+        {
+            dest[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    /**
+     * Writes sixteen hex characters for a long.
+     * @param value The long to write.
+     * @param dest The array to write to.
+     * @param offset The index of the first character.
+     */
+    private static void writeHex(long value, byte[] dest, int offset)
+    {
+        for(int i = 15; i >= 0; i--)
+        {
+            dest[offset + i] = HEX_DIGITS[(int) (value & 0xf)];
+            value >>>= 4;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A HashFunction backed by the JDK, it hashes with a cached MessageDigest per thread.
+ * Looking up a digest from the security providers is much slower than hashing a short input, so each thread looks it up once and reuses it.
+ */
+public final class HashEngine implements HashFunction
+{
+    /**
+     * Engine for SHA-256, the default hash of the blockchain.
+     */
+    public static final HashEngine SHA256 = new HashEngine("SHA-256");
+    /**
+     * Engine for SHA-512/256, usually faster than SHA-256 on 64-bit processors.
+     */
+    public static final HashEngine SHA512_256 = new HashEngine("SHA-512/256");
+    /**
+     * Engine for SHA3-256.
+     */
+    public static final HashEngine SHA3_256 = new HashEngine("SHA3-256");
+
+    /**
+     * Name of the algorithm as known by MessageDigest.
+     */
+    private final String algorithm;
+    /**
+     * The digest of each thread.
+     */
+    private final ThreadLocal<MessageDigest> digests;
+
+    /**
+     * Constructor for the engine.
+     * @param algorithm Name of the algorithm as known by MessageDigest, it must produce 32 byte digests.
+     */
+    public HashEngine(String algorithm)
+    {
+        this.algorithm = algorithm;
+        // Fail here rather than on the first hash if the algorithm isn't usable.
+        if(newDigest(algorithm).getDigestLength() != Hash.BYTES)
+            throw new RuntimeException("Hash algorithm " + algorithm + " does not produce " + Hash.BYTES + " byte digests");
+        digests = ThreadLocal.withInitial(() -> newDigest(algorithm));
+    }
+
+    /**
+     * Looks up the engine for an algorithm, the built in engines are reused.
+     * @param algorithm Name of the algorithm as known by MessageDigest.
+     * @return Returns the engine for the algorithm.
+     */
+    public static HashEngine forAlgorithm(String algorithm)
+    {
+        if(SHA256.algorithm.equals(algorithm))
+            return SHA256;
+        if(SHA512_256.algorithm.equals(algorithm))
+            return SHA512_256;
+        if(SHA3_256.algorithm.equals(algorithm))
+            return SHA3_256;
+        return new HashEngine(algorithm);
+    }
+
+    /**
+     * Name of the algorithm.
+     * @return Returns the name of the algorithm as known by MessageDigest.
+     */
+    @Override
+    public String getAlgorithm()
+    {
+        return algorithm;
+    }
+
+    /**
+     * Hashes part of an array into another array without allocating.
+     * @param input Array holding the bytes to hash.
+     * @param offset Index of the first byte to hash.
+     * @param length Number of bytes to hash.
+     * @param output Array to write the 32 byte digest to.
+     * @param outputOffset Index to write the digest at.
+     */
+    @Override
+    public void hash(byte[] input, int offset, int length, byte[] output, int outputOffset)
+    {
+        MessageDigest digest = digests.get();
+        digest.update(input, offset, length);
+        finish(digest, output, outputOffset);
+    }
+
+    /**
+     * Hashes the remaining bytes of a buffer into an array without allocating.
+     * The position of the buffer is moved to its limit.
+     * @param input Buffer holding the bytes to hash.
+     * @param output Array to write the 32 byte digest to.
+     * @param outputOffset Index to write the digest at.
+     */
+    @Override
+    public void hash(ByteBuffer input, byte[] output, int outputOffset)
+    {
+        MessageDigest digest = digests.get();
+        digest.update(input);
+        finish(digest, output, outputOffset);
+    }
+
+    /**
+     * Hashes part of an array.
+     * @param input Array holding the bytes to hash.
+     * @param offset Index of the first byte to hash.
+     * @param length Number of bytes to hash.
+     * @return Returns the hash.
+     */
+    @Override
+    public Hash hash(byte[] input, int offset, int length)
+    {
+        byte[] output = new byte[Hash.BYTES];
+        hash(input, offset, length, output, 0);
+        return Hash.fromBytes(output, 0);
+    }
+
+    /**
+     * Hashes the UTF-8 bytes of a string.
+     * @param input String to hash.
+     * @return Returns the hash.
+     */
+    @Override
+    public Hash hash(String input)
+    {
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        return hash(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Hashes every input, writing the digests one after the other into the output.
+     * @param inputs The inputs to hash.
+     * @param output Array to write the digests to, the digest of inputs[i] is written at outputOffset + 32 * i.
+     * @param outputOffset Index to write the first digest at.
+     */
+    @Override
+    public void hashAll(byte[][] inputs, byte[] output, int outputOffset)
+    {
+        if(outputOffset < 0 || outputOffset + (long) inputs.length * Hash.BYTES > output.length)
+            throw new RuntimeException("Output too small for " + inputs.length + " hashes");
+        MessageDigest digest = digests.get();
+        for(int i = 0; i < inputs.length; i++)
+        {
+            digest.update(inputs[i]);
+            finish(digest, output, outputOffset + i * Hash.BYTES);
+        }
+    }
+
+    /**
+     * Hashes the UTF-8 bytes of every string.
+     * @param inputs The strings to hash.
+     * @return Returns the hashes in the same order as the inputs.
+     */
+    @Override
+    public Hash[] hashAll(String[] inputs)
+    {
+        MessageDigest digest = digests.get();
+        byte[] output = new byte[Hash.BYTES];
+        Hash[] hashes = new Hash[inputs.length];
+        for(int i = 0; i < inputs.length; i++)
+        {
+            digest.update(inputs[i].getBytes(StandardCharsets.UTF_8));
+            finish(digest, output, 0);
+            hashes[i] = Hash.fromBytes(output, 0);
+        }
+        return hashes;
+    }
+
+    /**
+     * Completes a digest into an array, the digest is reset afterwards.
+     * @param digest The digest that has been updated with the input.
+     * @param output Array to write the digest to.
+     * @param outputOffset Index to write the digest at.
+     */
+    private static void finish(MessageDigest digest, byte[] output, int outputOffset)
+    {
+        try
+        {
+            digest.digest(output, outputOffset, Hash.BYTES);
+        }
+        catch(DigestException e)
+        {
+            digest.reset();
+            throw new RuntimeException("Invalid output for digest: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Looks up a new digest from the security providers.
+     * @param algorithm Name of the algorithm.
+     * @return Returns the digest.
+     */
+    private static MessageDigest newDigest(String algorithm)
+    {
+        try
+        {
+            return MessageDigest.getInstance(algorithm);
+        }
+        catch(NoSuchAlgorithmException e)
+        {
+            throw new RuntimeException("Hash algorithm " + algorithm + " not available");
+        }
+    }
+}
@@ -0,0 +1,64 @@
+import java.nio.ByteBuffer;
+
+/**
+ * A cryptographic hash function producing 32 byte digests.
+ * MerkleTree, Block and Utilities.verifyTransaction are parameterised on it so the algorithm can be swapped without touching the tree code.
+ */
+public interface HashFunction
+{
+    /**
+     * Name of the algorithm, stored with each block so proofs are verified with the function that made its root hash.
+     * @return Returns the name of the algorithm.
+     */
+    String getAlgorithm();
+
+    /**
+     * Hashes part of an array into another array without allocating.
+     * @param input Array holding the bytes to hash.
+     * @param offset Index of the first byte to hash.
+     * @param length Number of bytes to hash.
+     * @param output Array to write the 32 byte digest to.
+     * @param outputOffset Index to write the digest at.
+     */
+    void hash(byte[] input, int offset, int length, byte[] output, int outputOffset);
+
+    /**
+     * Hashes the remaining bytes of a buffer into an array without allocating.
+     * The position of the buffer is moved to its limit.
+     * @param input Buffer holding the bytes to hash.
+     * @param output Array to write the 32 byte digest to.
+     * @param outputOffset Index to write the digest at.
+     */
+    void hash(ByteBuffer input, byte[] output, int outputOffset);
+
+    /**
+     * Hashes part of an array.
+     * @param input Array holding the bytes to hash.
+     * @param offset Index of the first byte to hash.
+     * @param length Number of bytes to hash.
+     * @return Returns the hash.
+     */
+    Hash hash(byte[] input, int offset, int length);
+
+    /**
+     * Hashes the UTF-8 bytes of a string.
+     * @param input String to hash.
+     * @return Returns the hash.
+     */
+    Hash hash(String input);
+
+    /**
+     * Hashes every input, writing the digests one after the other into the output.
+     * @param inputs The inputs to hash.
+     * @param output Array to write the digests to, the digest of inputs[i] is written at outputOffset + 32 * i.
+     * @param outputOffset Index to write the first digest at.
+     */
+    void hashAll(byte[][] inputs, byte[] output, int outputOffset);
+
+    /**
+     * Hashes the UTF-8 bytes of every string.
+     * @param inputs The strings to hash.
+     * @return Returns the hashes in the same order as the inputs.
+     */
+    Hash[] hashAll(String[] inputs);
+}
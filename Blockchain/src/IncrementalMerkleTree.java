@@ -0,0 +1,225 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A Merkle Tree that grows with its Block.
+ * Appending a transaction or replacing one only rehashes the path from its leaf to the root, and the root hash of the block is kept up to date after every change.
+ * The root hash is always the same as building a MerkleTree from the block with the same hash function and combiner.
+ * Unlike MerkleTree it changes after construction, so it must not be shared between threads without locking.
+ */
+public class IncrementalMerkleTree
+{
+    /**
+     * The block that the tree encodes.
+     */
+    private final Block block;
+    /**
+     * The raw 32 byte hashes of each level, level 0 holds the leaves and the last level holds the root.
+     * Only the nodes that have a transaction under them are kept up to date, the rest are padding and read from the shared table.
+     */
+    private byte[][] levels;
+    /**
+     * Number of transactions in the tree.
+     */
+    private int count;
+    /**
+     * Height of the tree.
+     */
+    private int height;
+    /**
+     * The hash function used for the leaves and inner nodes.
+     */
+    private final HashFunction hashFunction;
+    /**
+     * How the hashes of two children are merged into their parent.
+     */
+    private final Combiner combiner;
+    /**
+     * The hashes of padded subtrees.
+     */
+    private final PaddingHashes padding;
+    /**
+     * Working space for reading a padded child.
+     */
+    private final byte[] scratch = new byte[2 * Hash.BYTES];
+
+    /**
+     * The constructor builds the tree for the transactions already in the block and sets the root hash of the block.
+     * The tree is hashed with SHA-256 and the children of every inner node are merged with the legacy XOR scheme, like a MerkleTree.
+     * @param block The Block that the tree will be kept in sync with.
+     */
+    public IncrementalMerkleTree(Block block)
+    {
+        this(block, HashEngine.SHA256, Combiner.LEGACY_XOR);
+    }
+
+    /**
+     * The constructor builds the tree for the transactions already in the block and sets the root hash of the block.
+     * @param block The Block that the tree will be kept in sync with.
+     * @param hashFunction The hash function used for the leaves and inner nodes.
+     * @param combiner How the hashes of two children are merged into their parent.
+     */
+    public IncrementalMerkleTree(Block block, HashFunction hashFunction, Combiner combiner)
+    {
+        this.block = block;
+        this.hashFunction = hashFunction;
+        this.combiner = combiner;
+        padding = PaddingHashes.of(hashFunction, combiner);
+
+        // Like a MerkleTree the minimum is two leaves.
+        height = 1;
+        while((1 << height) < block.numOfTransactions())
+            height++;
+        levels = new byte[height + 1][];
+        for(int level = 0; level <= height; level++)
+            levels[level] = new byte[((1 << height) >> level) * Hash.BYTES];
+
+        for(Transaction t : block)
+            hashLeaf(t, count++);
+        for(int level = 1; level <= height; level++)
+        {
+            for(int i = 0; i < filled(level); i++)
+                combineChildren(level, i);
+        }
+        updateBlock();
+    }
+
+    /**
+     * Adds a transaction to the end of the block and rehashes its path.
+     * @param t The transaction to add.
+     */
+    public void append(Transaction t)
+    {
+        if(count == 1 << height)
+            grow();
+        block.addTransaction(t);
+        hashLeaf(t, count);
+        count++;
+        rehashPath(count - 1);
+        updateBlock();
+    }
+
+    /**
+     * Replaces a transaction of the block and rehashes its path.
+     * @param index The position of the transaction to replace.
+     * @param t The new transaction.
+     * @return Returns the transaction that was replaced.
+     */
+    public Transaction replace(int index, Transaction t)
+    {
+        if(index < 0 || index >= count)
+            throw new RuntimeException("Invalid index: " + index);
+        Transaction old = block.setTransaction(index, t);
+        hashLeaf(t, index);
+        rehashPath(index);
+        updateBlock();
+        return old;
+    }
+
+    /**
+     * The hash of the root.
+     * @return Returns the root hash of the tree.
+     */
+    public Hash getRootHash()
+    {
+        if(count == 0)
+            return padding.level(height);
+        return Hash.fromBytes(levels[height], 0);
+    }
+
+    /**
+     * Number of transactions in the tree.
+     * @return Returns the number of transactions.
+     */
+    public int size()
+    {
+        return count;
+    }
+
+    /**
+     * The height of the tree.
+     * @return Returns the height of the tree.
+     */
+    public int height()
+    {
+        return height;
+    }
+
+    /**
+     * Doubles the number of leaves, the old tree becomes the left child of the new root.
+     */
+    private void grow()
+    {
+        if(height == 30)
+            throw new RuntimeException("Tree is full");
+        height++;
+        levels = Arrays.copyOf(levels, height + 1);
+        for(int level = 0; level < height; level++)
+            levels[level] = Arrays.copyOf(levels[level], 2 * levels[level].length);
+        levels[height] = new byte[Hash.BYTES];
+    }
+
+    /**
+     * Rehashes every node from a leaf up to the root.
+     * @param leaf Position of the leaf.
+     */
+    private void rehashPath(int leaf)
+    {
+        for(int level = 1; level <= height; level++)
+            combineChildren(level, leaf >> level);
+    }
+
+    /**
+     * Combines the two children of a node into it.
+     * @param level Level of the node, 1 is just above the leaves.
+     * @param index Position of the node in its level.
+     */
+    private void combineChildren(int level, int index)
+    {
+        byte[] children = levels[level - 1];
+        int stored = filled(level - 1);
+        int left = 2 * index;
+        int right = 2 * index + 1;
+        // A node is only combined when its left child has a transaction under it, the right child may be padding.
+        if(right < stored)
+        {
+            combiner.combine(hashFunction, children, left * Hash.BYTES, children, right * Hash.BYTES, levels[level], index * Hash.BYTES);
+        }
+        else
+        {
+            padding.level(level - 1).copyTo(scratch, 0);
+            combiner.combine(hashFunction, children, left * Hash.BYTES, scratch, 0, levels[level], index * Hash.BYTES);
+        }
+    }
+
+    /**
+     * Hashes a transaction into a leaf.
+     * @param t The transaction.
+     * @param index Position of the leaf.
+     */
+    private void hashLeaf(Transaction t, int index)
+    {
+        byte[] bytes = t.toString().getBytes(StandardCharsets.UTF_8);
+        hashFunction.hash(bytes, 0, bytes.length, levels[0], index * Hash.BYTES);
+    }
+
+    /**
+     * Number of nodes of a level that have a transaction under them.
+     * @param level The level, 0 is the leaves.
+     * @return Returns the number of stored nodes in the level.
+     */
+    private int filled(int level)
+    {
+        return (count + (1 << level) - 1) >> level;
+    }
+
+    /**
+     * Sends the root hash, the hash function and the combiner to the block.
+     */
+    private void updateBlock()
+    {
+        block.setRootHash(getRootHash());
+        block.setHashFunction(hashFunction);
+        block.setCombiner(combiner);
+    }
+}
@@ -0,0 +1,69 @@
+import java.util.function.IntFunction;
+
+/**
+ * Finds the leaf of a transaction hash in a Merkle tree, so proofs don't have to search the tree.
+ * The positions of the leaves are kept in an open-addressed int table keyed on the first bytes of the hash, with linear probing,
+ * and the hashes themselves stay in the tree, so a leaf costs at most 16 bytes instead of a map entry, a boxed position and its Hash.
+ * The table is never modified after the constructor, so concurrent lookups are safe.
+ */
+public final class LeafIndex
+{
+    /**
+     * Position of a leaf plus one in every used slot, 0 in the empty ones.
+     */
+    private final int[] slots;
+    /**
+     * Gives the hash of the leaf at a position.
+     */
+    private final IntFunction<Hash> leafHash;
+
+    /**
+     * Constructor for the index, a hash that appears at several leaves is found at its first one.
+     * @param numOfTransactions Number of leaves holding a transaction.
+     * @param leafHash Gives the hash of the leaf at a position.
+     */
+    public LeafIndex(int numOfTransactions, IntFunction<Hash> leafHash)
+    {
+        this.leafHash = leafHash;
+        // Keep the table at most half full so probe runs stay short.
+        int capacity = 2;
+        while(capacity < 2L * numOfTransactions)
+            capacity *= 2;
+        slots = new int[capacity];
+        for(int i = 0; i < numOfTransactions; i++)
+        {
+            Hash h = leafHash.apply(i);
+            int slot = h.hashCode() & (capacity - 1);
+            while(slots[slot] != 0 && !leafHash.apply(slots[slot] - 1).equals(h))
+                slot = (slot + 1) & (capacity - 1);
+            if(slots[slot] == 0)
+                slots[slot] = i + 1;
+        }
+    }
+
+    /**
+     * Finds the leaf of a hash.
+     * @param h The hash of the transaction.
+     * @return Returns the position of the first leaf with that hash, or -1 if there is none.
+     */
+    public int find(Hash h)
+    {
+        int slot = h.hashCode() & (slots.length - 1);
+        while(slots[slot] != 0)
+        {
+            if(leafHash.apply(slots[slot] - 1).equals(h))
+                return slots[slot] - 1;
+            slot = (slot + 1) & (slots.length - 1);
+        }
+        return -1;
+    }
+
+    /**
+     * Approximate number of bytes the index keeps in memory, not counting the hashes it looks at.
+     * @return Returns the estimated size of the index in bytes.
+     */
+    public long memoryFootprint()
+    {
+        return 4L * slots.length + 32;
+    }
+}
@@ -0,0 +1,130 @@
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Measures how the ConcurrentMempool holds up as producer threads are added, against a PriorityLine behind a single lock.
+ * Each run has 1, 2, 4... up to N producers adding transactions while one consumer drains them into blocks.
+ */
+public class MempoolBenchmark
+{
+    /**
+     * Main method.
+     * Usage: java MempoolBenchmark [max producers] [transactions per producer].
+     * @param args Takes in up to two arguments.
+     */
+    public static void main(String[] args) throws InterruptedException
+    {
+        int maxProducers = args.length > 0 ? Integer.parseInt(args[0]) : 2 * Runtime.getRuntime().availableProcessors();
+        int perProducer = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+
+        System.out.println(String.format("%-10s %-18s %-18s", "producers", "mempool (M/s)", "locked (M/s)"));
+        // The first round only warms up the JIT.
+        run(new ConcurrentMempool(), 1, perProducer);
+        run(new LockedLine(), 1, perProducer);
+        for(int producers = 1; producers <= maxProducers; producers *= 2)
+        {
+            double concurrent = run(new ConcurrentMempool(), producers, perProducer);
+            double locked = run(new LockedLine(), producers, perProducer);
+            System.out.println(String.format("%-10d %-18.2f %-18.2f", producers, concurrent, locked));
+        }
+    }
+
+    /**
+     * Runs the producers and one consumer until every transaction was drained.
+     * @param queue The queue to test.
+     * @param producers Number of producer threads.
+     * @param perProducer Number of transactions each producer adds.
+     * @return Returns the millions of transactions that went through the queue per second.
+     */
+    private static double run(final AbstractPriorityLine<Transaction> queue, int producers, final int perProducer) throws InterruptedException
+    {
+        // Fees are skewed towards low values like real mempools, the transactions are made up front so only the queue is measured.
+        final Transaction[][] input = new Transaction[producers][perProducer];
+        Random random = new Random(42);
+        for(int p = 0; p < producers; p++)
+        {
+            for(int i = 0; i < perProducer; i++)
+                input[p][i] = new Transaction("P" + p, "R", i, (int) Math.min(Math.abs(random.nextGaussian()) * 20, 2000));
+        }
+
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers];
+        for(int p = 0; p < producers; p++)
+        {
+            final Transaction[] mine = input[p];
+            threads[p] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                    }
+                    catch(InterruptedException e)
+                    {
+                        return;
+                    }
+                    for(Transaction t : mine)
+                        queue.enqueue(t);
+                }
+            });
+            threads[p].start();
+        }
+
+        long total = (long) producers * perProducer;
+        long drained = 0;
+        long begin = System.nanoTime();
+        start.countDown();
+        while(drained < total)
+        {
+            Block block = new Block();
+            if(queue instanceof ConcurrentMempool)
+            {
+                drained += ((ConcurrentMempool) queue).drainTo(block, 1000);
+            }
+            else
+            {
+                while(block.numOfTransactions() < 1000 && !queue.isEmpty())
+                    block.addTransaction(queue.dequeue());
+                drained += block.numOfTransactions();
+            }
+            if(block.numOfTransactions() == 0)
+                Thread.yield();
+        }
+        long elapsed = System.nanoTime() - begin;
+        for(Thread thread : threads)
+            thread.join();
+        return total / (elapsed / 1e9) / 1e6;
+    }
+
+    /**
+     * A PriorityLine where every method holds the lock of the queue, the simple way to share it between threads.
+     */
+    private static class LockedLine extends PriorityLine<Transaction>
+    {
+        @Override
+        public synchronized void enqueue(Transaction element)
+        {
+            super.enqueue(element);
+        }
+
+        @Override
+        public synchronized Transaction dequeue()
+        {
+            return super.dequeue();
+        }
+
+        @Override
+        public synchronized boolean isEmpty()
+        {
+            return super.isEmpty();
+        }
+
+        @Override
+        public synchronized int size()
+        {
+            return super.size();
+        }
+    }
+}
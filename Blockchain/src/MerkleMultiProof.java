@@ -0,0 +1,305 @@
+import java.util.Arrays;
+
+/**
+ * Proof that several transactions are contained in the same block, sharing the hashes their paths have in common.
+ * Only the hashes of subtrees that contain none of the proven leaves are included, so a sibling needed by several paths is sent once
+ * and hashes that the verifier can compute from the proven leaves are never sent at all.
+ * The siblings are listed in the order of a depth-first walk of the tree that visits left children before right children.
+ */
+public class MerkleMultiProof
+{
+    /**
+     * Gives the hash of a node of the tree a proof is extracted from, however the tree stores its nodes.
+     */
+    interface SubtreeHash
+    {
+        /**
+         * The hash of a node.
+         * @param level Number of levels below the node, 0 for a leaf.
+         * @param index Position of the node in its level, counted from the left.
+         * @return Returns the hash of the node.
+         */
+        Hash hash(int level, int index);
+    }
+
+    /**
+     * Height of the tree the proof was extracted from.
+     */
+    private final int height;
+    /**
+     * Leaf position of each proven transaction, in the order the transactions were given.
+     */
+    private final int[] leafIndices;
+    /**
+     * Hashes of the subtrees that contain no proven leaf, in depth-first order.
+     */
+    private final Hash[] siblings;
+
+    /**
+     * Constructor for the proof.
+     * @param height Height of the tree the proof was extracted from.
+     * @param leafIndices Leaf position of each proven transaction, in the order the transactions were given.
+     * @param siblings Hashes of the subtrees that contain no proven leaf, in depth-first order.
+     */
+    public MerkleMultiProof(int height, int[] leafIndices, Hash[] siblings)
+    {
+        if(height < 1 || height > 30)
+            throw new RuntimeException("Invalid height: " + height);
+        for(int index : leafIndices)
+        {
+            if(index < 0 || index >= 1 << height)
+                throw new RuntimeException("Invalid leaf index: " + index);
+        }
+        this.height = height;
+        this.leafIndices = leafIndices.clone();
+        this.siblings = siblings.clone();
+    }
+
+    /**
+     * Height of the tree the proof was extracted from.
+     * @return Returns the height of the tree.
+     */
+    public int height()
+    {
+        return height;
+    }
+
+    /**
+     * Number of transactions proven.
+     * @return Returns the number of leaf positions in the proof.
+     */
+    public int numOfLeaves()
+    {
+        return leafIndices.length;
+    }
+
+    /**
+     * Leaf position of a proven transaction.
+     * @param index Index of the transaction in the order they were given.
+     * @return Returns the position of its leaf.
+     */
+    public int getLeafIndex(int index)
+    {
+        if(index < 0 || index >= leafIndices.length)
+            throw new RuntimeException("Invalid index: " + index);
+        return leafIndices[index];
+    }
+
+    /**
+     * Number of hashes in the proof.
+     * @return Returns the number of sibling hashes.
+     */
+    public int size()
+    {
+        return siblings.length;
+    }
+
+    /**
+     * Retrieves a sibling hash.
+     * @param index Index of the sibling in depth-first order.
+     * @return Returns the sibling hash.
+     */
+    public Hash getSibling(int index)
+    {
+        if(index < 0 || index >= siblings.length)
+            throw new RuntimeException("Invalid index: " + index);
+        return siblings[index];
+    }
+
+    /**
+     * Extracts the proof of several transactions from a tree, the shared part of MerkleTree.extractMultiProof and FlatMerkleTree.extractMultiProof.
+     * @param transactions Transactions to prove.
+     * @param hashFunction The hash function the tree was built with.
+     * @param leafIndex Position of the leaf of each transaction hash.
+     * @param height Height of the tree.
+     * @param subtreeHash Gives the hash of a node of the tree.
+     * @return Returns the proof, or null if one of the transactions isn't in the tree.
+     */
+    static MerkleMultiProof extract(Iterable<Transaction> transactions, HashFunction hashFunction, LeafIndex leafIndex, int height, SubtreeHash subtreeHash)
+    {
+        SinglyLinkedList<Integer> indexList = new SinglyLinkedList<>();
+        for(Transaction t : transactions)
+        {
+            int index = leafIndex.find(hashFunction.hash(t.toString()));
+            if(index < 0)
+                return null;
+            indexList.add(index);
+        }
+        if(indexList.isEmpty())
+            throw new RuntimeException("No transactions to prove");
+        int[] leafIndices = new int[indexList.size()];
+        int i = 0;
+        for(int index : indexList)
+            leafIndices[i++] = index;
+
+        int[] positions = sortedDistinct(leafIndices);
+        SinglyLinkedList<Hash> siblings = new SinglyLinkedList<>();
+        addSiblings(height, 0, positions, 0, positions.length, subtreeHash, siblings);
+        Hash[] siblingArray = new Hash[siblings.size()];
+        i = 0;
+        for(Hash h : siblings)
+            siblingArray[i++] = h;
+        return new MerkleMultiProof(height, leafIndices, siblingArray);
+    }
+
+    /**
+     * Recursive helper method for extracting a proof, adds the hash of every child that contains no proven leaf.
+     * @param level Number of levels below the root of the subtree.
+     * @param index Position of the root of the subtree in its level.
+     * @param positions Sorted positions of the proven leaves.
+     * @param from Index of the first proven leaf in the subtree.
+     * @param to Index after the last proven leaf in the subtree.
+     * @param subtreeHash Gives the hash of a node of the tree.
+     * @param siblings List the hashes are added to.
+     */
+    private static void addSiblings(int level, int index, int[] positions, int from, int to, SubtreeHash subtreeHash, SinglyLinkedList<Hash> siblings)
+    {
+        if(level == 0)
+            return;
+        // The right child starts at this leaf.
+        int middle = split(positions, from, to, (2 * index + 1) << (level - 1));
+        if(from < middle)
+            addSiblings(level - 1, 2 * index, positions, from, middle, subtreeHash, siblings);
+        else
+            siblings.add(subtreeHash.hash(level - 1, 2 * index));
+        if(middle < to)
+            addSiblings(level - 1, 2 * index + 1, positions, middle, to, subtreeHash, siblings);
+        else
+            siblings.add(subtreeHash.hash(level - 1, 2 * index + 1));
+    }
+
+    /**
+     * Recomputes the root hash once from the hashes of all the proven leaves.
+     * @param leafHashes Hash of each proven transaction, in the order the transactions were given.
+     * @param hashFunction The hash function the tree was built with.
+     * @param combiner How the tree merged the hashes of two children.
+     * @return Returns the root hash implied by the proof, or null if the leaves don't match the proof.
+     */
+    public Hash computeRoot(Hash[] leafHashes, HashFunction hashFunction, Combiner combiner)
+    {
+        if(leafHashes.length != leafIndices.length || leafHashes.length == 0)
+            return null;
+
+        // Sort the leaves by position, the same leaf given twice must have the same hash.
+        int[] order = sortedOrder(leafIndices);
+        int[] positions = new int[order.length];
+        Hash[] hashes = new Hash[order.length];
+        int count = 0;
+        for(int i : order)
+        {
+            if(count > 0 && positions[count - 1] == leafIndices[i])
+            {
+                if(!hashes[count - 1].equals(leafHashes[i]))
+                    return null;
+                continue;
+            }
+            positions[count] = leafIndices[i];
+            hashes[count++] = leafHashes[i];
+        }
+
+        int[] cursor = new int[1];
+        Hash root = computeSubtree(1 << height, 0, positions, hashes, 0, count, cursor, hashFunction, combiner);
+        // Every sibling must have been used.
+        if(root == null || cursor[0] != siblings.length)
+            return null;
+        return root;
+    }
+
+    /**
+     * Recursive helper method for computing the hash of a subtree that contains proven leaves.
+     * @param numLeaves Number of leaves in the subtree.
+     * @param first Position of the first leaf of the subtree.
+     * @param positions Sorted positions of the proven leaves.
+     * @param hashes Hashes of the proven leaves, aligned with the positions.
+     * @param from Index of the first proven leaf in the subtree.
+     * @param to Index after the last proven leaf in the subtree.
+     * @param cursor Index of the next sibling to use.
+     * @param hashFunction The hash function the tree was built with.
+     * @param combiner How the tree merged the hashes of two children.
+     * @return Returns the hash of the subtree, or null if the proof runs out of siblings.
+     */
+    private Hash computeSubtree(int numLeaves, int first, int[] positions, Hash[] hashes, int from, int to, int[] cursor, HashFunction hashFunction, Combiner combiner)
+    {
+        if(numLeaves == 1)
+            return hashes[from];
+
+        int middle = split(positions, from, to, first + numLeaves / 2);
+        Hash left;
+        Hash right;
+        if(from < middle)
+            left = computeSubtree(numLeaves / 2, first, positions, hashes, from, middle, cursor, hashFunction, combiner);
+        else
+            left = nextSibling(cursor);
+        if(middle < to)
+            right = computeSubtree(numLeaves / 2, first + numLeaves / 2, positions, hashes, middle, to, cursor, hashFunction, combiner);
+        else
+            right = nextSibling(cursor);
+
+        if(left == null || right == null)
+            return null;
+        return combiner.combine(hashFunction, left, right);
+    }
+
+    /**
+     * Takes the next sibling.
+     * @param cursor Index of the next sibling to use, incremented.
+     * @return Returns the sibling, or null if there are none left.
+     */
+    private Hash nextSibling(int[] cursor)
+    {
+        if(cursor[0] >= siblings.length)
+            return null;
+        return siblings[cursor[0]++];
+    }
+
+    /**
+     * Finds where the proven leaves of a subtree split between its two children.
+     * @param positions Sorted positions of the proven leaves.
+     * @param from Index of the first proven leaf in the subtree.
+     * @param to Index after the last proven leaf in the subtree.
+     * @param middle Position of the first leaf of the right child.
+     * @return Returns the index of the first proven leaf in the right child.
+     */
+    private static int split(int[] positions, int from, int to, int middle)
+    {
+        while(from < to && positions[from] < middle)
+            from++;
+        return from;
+    }
+
+    /**
+     * Sorts the leaf positions, removing duplicates.
+     * @param indices The leaf positions.
+     * @return Returns the distinct positions in increasing order.
+     */
+    private static int[] sortedDistinct(int[] indices)
+    {
+        int[] sorted = indices.clone();
+        Arrays.sort(sorted);
+        int count = 0;
+        for(int i = 0; i < sorted.length; i++)
+        {
+            if(count == 0 || sorted[count - 1] != sorted[i])
+                sorted[count++] = sorted[i];
+        }
+        return Arrays.copyOf(sorted, count);
+    }
+
+    /**
+     * The order that sorts the leaf positions, keeping equal positions in the order they were given.
+     * @param indices The leaf positions.
+     * @return Returns the indices into the array in order of increasing position.
+     */
+    private static int[] sortedOrder(int[] indices)
+    {
+        // Pack the position and the index into one long so a plain sort orders both.
+        long[] packed = new long[indices.length];
+        for(int i = 0; i < indices.length; i++)
+            packed[i] = ((long) indices[i] << 32) | i;
+        Arrays.sort(packed);
+        int[] order = new int[indices.length];
+        for(int i = 0; i < packed.length; i++)
+            order[i] = (int) packed[i];
+        return order;
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * The hashes needed to prove that a transaction is contained in a block, along with the side each hash is on.
+ * Index 0 is the sibling of the leaf and the last index is the sibling just below the root, so the proof is read bottom up.
+ */
+public class MerkleProof
+{
+    /**
+     * Position of the proven leaf in the tree.
+     */
+    private final int leafIndex;
+    /**
+     * The sibling hashes, deepest first.
+     */
+    private final Hash[] siblings;
+    /**
+     * Bit i is set when sibling i is the left child, meaning the path goes through the right child at that level.
+     */
+    private final long leftSides;
+
+    /**
+     * Constructor for the proof.
+     * @param leafIndex Position of the proven leaf in the tree.
+     * @param siblings The sibling hashes, deepest first.
+     * @param leftSides Bit i is set when sibling i is the left child.
+     */
+    public MerkleProof(int leafIndex, Hash[] siblings, long leftSides)
+    {
+        if(siblings.length > Long.SIZE)
+            throw new RuntimeException("Proof too long: " + siblings.length);
+        this.leafIndex = leafIndex;
+        this.siblings = siblings.clone();
+        this.leftSides = leftSides;
+    }
+
+    /**
+     * Position of the proven leaf in the tree.
+     * @return Returns the index of the leaf, counted from the left starting at 0.
+     */
+    public int getLeafIndex()
+    {
+        return leafIndex;
+    }
+
+    /**
+     * Number of hashes in the proof.
+     * @return Returns the number of siblings, which is the height of the tree.
+     */
+    public int size()
+    {
+        return siblings.length;
+    }
+
+    /**
+     * Retrieves a sibling hash.
+     * @param index Index of the sibling, 0 is the deepest.
+     * @return Returns the sibling hash.
+     */
+    public Hash getSibling(int index)
+    {
+        if(index < 0 || index >= siblings.length)
+            throw new RuntimeException("Invalid index: " + index);
+        return siblings[index];
+    }
+
+    /**
+     * Whether a sibling is the left child of its parent.
+     * @param index Index of the sibling, 0 is the deepest.
+     * @return Returns true if the sibling is on the left, false if it's on the right.
+     */
+    public boolean isLeft(int index)
+    {
+        if(index < 0 || index >= siblings.length)
+            throw new RuntimeException("Invalid index: " + index);
+        return (leftSides >>> index & 1) != 0;
+    }
+
+    /**
+     * The side bits of the proof.
+     * @return Returns a mask where bit i is set when sibling i is the left child.
+     */
+    public long getLeftSides()
+    {
+        return leftSides;
+    }
+
+    /**
+     * Recomputes the root hash from a leaf hash and the siblings.
+     * @param leafHash The hash of the proven leaf.
+     * @param hashFunction The hash function the tree was built with.
+     * @param combiner How the tree merged the hashes of two children.
+     * @return Returns the root hash implied by the proof.
+     */
+    public Hash computeRoot(Hash leafHash, HashFunction hashFunction, Combiner combiner)
+    {
+        Hash hash = leafHash;
+        for(int i = 0; i < siblings.length; i++)
+        {
+            if(isLeft(i))
+                hash = combiner.combine(hashFunction, siblings[i], hash);
+            else
+                hash = combiner.combine(hashFunction, hash, siblings[i]);
+        }
+        return hash;
+    }
+
+    /**
+     * The siblings as a list, in the same form returned by extractProof.
+     * @return Returns the list of sibling hashes, deepest first.
+     */
+    public SinglyLinkedList<Hash> toList()
+    {
+        SinglyLinkedList<Hash> list = new SinglyLinkedList<>();
+        for(Hash h : siblings)
+            list.add(h);
+        return list;
+    }
+}
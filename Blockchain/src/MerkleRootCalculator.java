@@ -0,0 +1,161 @@
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Computes the root hash of a Merkle Tree while reading the transactions once, without keeping the tree.
+ * Only one pending hash per level is kept: when a second hash arrives at a level the two are combined and carried up,
+ * like adding one to a binary counter. The result is the same root hash a MerkleTree would give for the same transactions.
+ */
+public class MerkleRootCalculator
+{
+    /**
+     * The raw 32 byte pending hash of level i is stored at index 32*i.
+     */
+    private byte[] pending = new byte[PaddingHashes.LEVELS * Hash.BYTES];
+    /**
+     * Bit i is set when level i has a pending hash, which is also bit i of the number of transactions.
+     */
+    private long present;
+    /**
+     * Number of transactions added.
+     */
+    private int count;
+    /**
+     * Working space for the hash being carried up.
+     */
+    private byte[] carry = new byte[2 * Hash.BYTES];
+    /**
+     * The hash function used for the leaves and inner nodes.
+     */
+    private HashFunction hashFunction;
+    /**
+     * How the hashes of two children are merged into their parent.
+     */
+    private Combiner combiner;
+    /**
+     * The hashes of padded subtrees.
+     */
+    private PaddingHashes padding;
+
+    /**
+     * Constructor for the calculator.
+     * The tree is hashed with SHA-256 and the children of every inner node are merged with the legacy XOR scheme, like a MerkleTree.
+     */
+    public MerkleRootCalculator()
+    {
+        this(HashEngine.SHA256, Combiner.LEGACY_XOR);
+    }
+
+    /**
+     * Constructor for the calculator.
+     * @param hashFunction The hash function used for the leaves and inner nodes.
+     * @param combiner How the hashes of two children are merged into their parent.
+     */
+    public MerkleRootCalculator(HashFunction hashFunction, Combiner combiner)
+    {
+        this.hashFunction = hashFunction;
+        this.combiner = combiner;
+        padding = PaddingHashes.of(hashFunction, combiner);
+    }
+
+    /**
+     * Computes the root hash of a block without building its tree, and sets it on the block.
+     * The tree is hashed with SHA-256 and the children of every inner node are merged with the legacy XOR scheme, like a MerkleTree.
+     * @param block The block to compute the root hash of.
+     * @return Returns the root hash.
+     */
+    public static Hash computeRoot(Block block)
+    {
+        return computeRoot(block, HashEngine.SHA256, Combiner.LEGACY_XOR);
+    }
+
+    /**
+     * Computes the root hash of a block without building its tree, and sets it on the block along with the hash function and combiner.
+     * @param block The block to compute the root hash of.
+     * @param hashFunction The hash function used for the leaves and inner nodes.
+     * @param combiner How the hashes of two children are merged into their parent.
+     * @return Returns the root hash.
+     */
+    public static Hash computeRoot(Block block, HashFunction hashFunction, Combiner combiner)
+    {
+        MerkleRootCalculator calculator = new MerkleRootCalculator(hashFunction, combiner);
+        for(Transaction t : block)
+            calculator.add(t);
+        Hash root = calculator.getRootHash();
+        block.setRootHash(root);
+        block.setHashFunction(hashFunction);
+        block.setCombiner(combiner);
+        return root;
+    }
+
+    /**
+     * Adds the next transaction.
+     * @param t The transaction to add.
+     */
+    public void add(Transaction t)
+    {
+        if(count == 1 << 30)
+            throw new RuntimeException("Too many transactions");
+        byte[] bytes = t.toString().getBytes(StandardCharsets.UTF_8);
+        hashFunction.hash(bytes, 0, bytes.length, carry, 0);
+        // Carry the new leaf up through every level that already has a pending hash.
+        int level = 0;
+        while((present >>> level & 1) != 0)
+        {
+            combiner.combine(hashFunction, pending, level * Hash.BYTES, carry, 0, carry, 0);
+            present &= ~(1L << level);
+            level++;
+        }
+        System.arraycopy(carry, 0, pending, level * Hash.BYTES, Hash.BYTES);
+        present |= 1L << level;
+        count++;
+    }
+
+    /**
+     * Number of transactions added.
+     * @return Returns the number of transactions.
+     */
+    public int size()
+    {
+        return count;
+    }
+
+    /**
+     * The root hash of the transactions added so far, padded with DUMMY leaves to a perfect tree of at least two leaves.
+     * More transactions can still be added afterwards.
+     * @return Returns the root hash.
+     */
+    public Hash getRootHash()
+    {
+        int height = 1;
+        while((1 << height) < count)
+            height++;
+        // A full tree is already a single pending hash.
+        if((present >>> height & 1) != 0)
+            return Hash.fromBytes(pending, height * Hash.BYTES);
+
+        // Walk up the right edge, each pending hash is the left sibling of what has been built so far, padding fills the gaps.
+        boolean building = false;
+        for(int level = 0; level < height; level++)
+        {
+            boolean hasPending = (present >>> level & 1) != 0;
+            if(hasPending && building)
+            {
+                combiner.combine(hashFunction, pending, level * Hash.BYTES, carry, 0, carry, 0);
+            }
+            else if(hasPending)
+            {
+                padding.level(level).copyTo(carry, Hash.BYTES);
+                combiner.combine(hashFunction, pending, level * Hash.BYTES, carry, Hash.BYTES, carry, 0);
+                building = true;
+            }
+            else if(building)
+            {
+                padding.level(level).copyTo(carry, Hash.BYTES);
+                combiner.combine(hashFunction, carry, 0, carry, Hash.BYTES, carry, 0);
+            }
+        }
+        if(!building)
+            return padding.level(height);
+        return Hash.fromBytes(carry, 0);
+    }
+}
@@ -1,14 +1,24 @@
 import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * Represents the Merkle Tree of a single Block.
+ * The tree is immutable once constructed: proofs and traversals only read it and keep their state in local variables,
+ * so a single tree can serve many threads at the same time without locking.
  */
 public class MerkleTree
 {
+    /**
+     * A reasonable number of leaves above which a subtree is worth building on another thread.
+     */
+    public static final int DEFAULT_PARALLEL_CUTOFF = 1024;
+
     /**
      * Root of the tree.
      */
-    private Node root;
+    private final Node root;
     public Node getRoot()
     {
         return root;
@@ -24,71 +34,238 @@ public class MerkleTree
     /**
      * Number of leaves in the perfect tree, minimum is 2.
      */
-    private int numOfLeaves = 2;
+    private final int numOfLeaves;
     /**
      * Height of the tree.
      */
-    private int height = 0;
+    private final int height;
+    /**
+     * The hash function used for the leaves and inner nodes.
+     */
+    private final HashFunction hashFunction;
+    /**
+     * How the hashes of two children are merged into their parent.
+     */
+    private final Combiner combiner;
     /**
-     * List for the traversal of the tree.
+     * Shared nodes for the padded subtrees, the node at index k stands for every subtree of height k with only DUMMY leaves.
      */
-    private SinglyLinkedList<String> list;
+    private final Node[] padding;
     /**
-     * Queue for doing the level order traversal.
+     * Hash of the leaf of each transaction, shared with the leaf nodes.
      */
-    private SinglyLinkedList<Node> queue;
+    private final Hash[] leafHashes;
+    /**
+     * Position of the leaf of each transaction hash, so proofs don't have to search the tree.
+     */
+    private final LeafIndex leafIndex;
 
     /**
      * The constructor first creates the Merkle Tree in memory.
      * After the tree is constructed, the constructor sends the hash of the root to the block object by invoking the block.setRootHash() method.
+     * The tree is hashed with SHA-256 and the children of every inner node are merged with the legacy XOR scheme.
      * @param block The Block that the Merkle Tree will be created for.
      */
     public MerkleTree(Block block) 
     {
+        this(block, HashEngine.SHA256, Combiner.LEGACY_XOR);
+    }
+
+    /**
+     * The constructor first creates the Merkle Tree in memory.
+     * The tree is hashed with SHA-256.
+     * @param block The Block that the Merkle Tree will be created for.
+     * @param combiner How the hashes of two children are merged into their parent.
+     */
+    public MerkleTree(Block block, Combiner combiner)
+    {
+        this(block, HashEngine.SHA256, combiner);
+    }
+
+    /**
+     * The constructor first creates the Merkle Tree in memory.
+     * After the tree is constructed, the constructor sends the hash of the root, the hash function and the combiner used to the block object.
+     * @param block The Block that the Merkle Tree will be created for.
+     * @param hashFunction The hash function used for the leaves and inner nodes.
+     * @param combiner How the hashes of two children are merged into their parent.
+     */
+    public MerkleTree(Block block, HashFunction hashFunction, Combiner combiner)
+    {
+        this(block, hashFunction, combiner, Integer.MAX_VALUE);
+    }
+
+    /**
+     * The constructor first creates the Merkle Tree in memory, building large subtrees in parallel.
+     * The leaves of each subtree are hashed and combined on the common fork/join pool, the root hash is the same as a sequential build.
+     * @param block The Block that the Merkle Tree will be created for.
+     * @param hashFunction The hash function used for the leaves and inner nodes.
+     * @param combiner How the hashes of two children are merged into their parent.
+     * @param parallelCutoff Subtrees with more leaves than this are split between threads, Integer.MAX_VALUE builds on the calling thread only.
+     */
+    public MerkleTree(Block block, HashFunction hashFunction, Combiner combiner, int parallelCutoff)
+    {
+        if(parallelCutoff < 1)
+            throw new RuntimeException("Invalid parallel cutoff: " + parallelCutoff);
+        this.hashFunction = hashFunction;
+        this.combiner = combiner;
         // Calculates how many leaf nodes we need to make a perfect tree.
-        while(numOfLeaves < block.numOfTransactions())
-            numOfLeaves *= 2;
+        int leaves = 2;
+        while(leaves < block.numOfTransactions())
+            leaves *= 2;
+        numOfLeaves = leaves;
         // Calculates the height of the tree.
-        height = (int) (Math.log(numOfLeaves)/Math.log(2));
+        height = Integer.numberOfTrailingZeros(numOfLeaves);
         
+        // Padded subtrees hash the same in every tree, so they are taken from the table instead of being rehashed.
+        PaddingHashes paddingHashes = PaddingHashes.of(hashFunction, combiner);
+        padding = new Node[height + 1];
+        padding[0] = new Node(paddingHashes.level(0));
+        for(int i = 1; i <= height; i++)
+        {
+            padding[i] = new Node(paddingHashes.level(i));
+            padding[i].left = padding[i - 1];
+            padding[i].right = padding[i - 1];
+        }
+
         // Uses the recursive helper method to make the tree and assign the last parent node to the root.
-        root = genTree(block.iterator(), numOfLeaves);
+        Transaction[] transactions = block.getTransactions();
+        leafHashes = new Hash[transactions.length];
+        if(numOfLeaves > parallelCutoff)
+            root = ForkJoinPool.commonPool().invoke(new SubtreeTask(transactions, leafHashes, 0, numOfLeaves, parallelCutoff));
+        else
+            root = genTree(transactions, leafHashes, 0, numOfLeaves);
+        // Index the leaves, a transaction that appears twice is proven by its first leaf.
+        leafIndex = new LeafIndex(leafHashes.length, i -> leafHashes[i]);
         // Set the rootHash for the block.
         block.setRootHash(root.hash);
+        block.setHashFunction(hashFunction);
+        block.setCombiner(combiner);
     }
 
     /**
      * Recursive helper method for generating the merkle tree.
-     * @param transactions Takes in an iterator of the transactions.
+     * @param transactions Takes in the transactions of the block.
+     * @param leafHashes Array that the hash of each transaction is stored in.
+     * @param first Index of the transaction at the first leaf of the subtree.
      * @param numLeaves Provide it the number of leaves that would form the perfect tree.
      * @return Returns a Node that we assign in the method recursivly.
      */
-    private Node genTree(Iterator<Transaction> transactions, int numLeaves) 
+    private Node genTree(Transaction[] transactions, Hash[] leafHashes, int first, int numLeaves) 
     {
+        // If there is no transactions left the whole subtree is padding.
+        if (first >= transactions.length)
+            return padding[Integer.numberOfTrailingZeros(numLeaves)];
         // We first check if the we reached a leaf node.
         if (numLeaves == 1)
         {
-            // If there is no transactions left we make a dummy node.
-            if (!transactions.hasNext())
-                return new Node(Utilities.cryptographicHashFunction("DUMMY"));
-            // Else we make a node based on the iterator.next.
-            return new Node(Utilities.cryptographicHashFunction(transactions.next().toString()));
+            leafHashes[first] = hashFunction.hash(transactions[first].toString());
+            return new Node(leafHashes[first]);
         }
 
         // We assign the left nodes of the tree.
-        Node left = genTree(transactions, numLeaves / 2);
+        Node left = genTree(transactions, leafHashes, first, numLeaves / 2);
         // We assign the right node of the tree.
-        Node right = genTree(transactions, numLeaves / 2);
+        Node right = genTree(transactions, leafHashes, first + numLeaves / 2, numLeaves / 2);
 
         // The parent node is the combination of left and right.
-        Node parent = new Node(Utilities.cryptographicHashFunction(left.hash, right.hash));
+        return parent(left, right);
+    }
+
+    /**
+     * Makes the parent of two nodes.
+     * @param left The left child.
+     * @param right The right child.
+     * @return Returns the parent node.
+     */
+    private Node parent(Node left, Node right)
+    {
+        Node parent = new Node(combiner.combine(hashFunction, left.hash, right.hash));
         parent.left = left;
         parent.right = right;
-
-        // We make the parent node.
         return parent;
     }
 
+    /**
+     * Builds a subtree, forking its left half to another thread while the subtree is larger than the cutoff.
+     */
+    private class SubtreeTask extends RecursiveTask<Node>
+    {
+        /**
+         * Version of the serialized form of the task.
+         */
+        private static final long serialVersionUID = 1L;
+        /**
+         * The transactions of the block.
+         */
+        private final Transaction[] transactions;
+        /**
+         * Array that the hash of each transaction is stored in.
+         */
+        private final Hash[] leafHashes;
+        /**
+         * Index of the transaction at the first leaf of the subtree.
+         */
+        private final int first;
+        /**
+         * Number of leaves in the subtree.
+         */
+        private final int numLeaves;
+        /**
+         * Subtrees with at most this many leaves are built on the current thread.
+         */
+        private final int cutoff;
+
+        /**
+         * Constructor for the task.
+         * @param transactions The transactions of the block.
+         * @param leafHashes Array that the hash of each transaction is stored in.
+         * @param first Index of the transaction at the first leaf of the subtree.
+         * @param numLeaves Number of leaves in the subtree.
+         * @param cutoff Subtrees with at most this many leaves are built on the current thread.
+         */
+        SubtreeTask(Transaction[] transactions, Hash[] leafHashes, int first, int numLeaves, int cutoff)
+        {
+            this.transactions = transactions;
+            this.leafHashes = leafHashes;
+            this.first = first;
+            this.numLeaves = numLeaves;
+            this.cutoff = cutoff;
+        }
+
+        /**
+         * Builds the subtree.
+         * @return Returns the root of the subtree.
+         */
+        @Override
+        protected Node compute()
+        {
+            if(numLeaves <= cutoff || first >= transactions.length)
+                return genTree(transactions, leafHashes, first, numLeaves);
+            SubtreeTask leftTask = new SubtreeTask(transactions, leafHashes, first, numLeaves / 2, cutoff);
+            leftTask.fork();
+            Node right = new SubtreeTask(transactions, leafHashes, first + numLeaves / 2, numLeaves / 2, cutoff).compute();
+            return parent(leftTask.join(), right);
+        }
+    }
+
+    /**
+     * The hash function used for the leaves and inner nodes.
+     * @return Returns the hash function of the tree.
+     */
+    public HashFunction getHashFunction()
+    {
+        return hashFunction;
+    }
+
+    /**
+     * How the hashes of two children are merged into their parent.
+     * @return Returns the combiner of the tree.
+     */
+    public Combiner getCombiner()
+    {
+        return combiner;
+    }
+
     /**
      * The height of the tree.
      * @return Returns the height of the tree.
@@ -98,6 +275,18 @@ public class MerkleTree
         return height;
     }
 
+    /**
+     * Approximate number of bytes the tree keeps in memory.
+     * Each transaction costs a leaf, about one inner node and its place in the leaf index; padding nodes are shared and only counted once per level.
+     * @return Returns the estimated size of the tree in bytes.
+     */
+    public long memoryFootprint()
+    {
+        // A Node with its Hash is about 80 bytes, the leaf hashes are shared with the leaves and cost a reference each.
+        long transactions = leafHashes.length;
+        return 2 * transactions * 80 + transactions * 8 + leafIndex.memoryFootprint() + (height + 1) * 80L + 128;
+    }
+
     /**
      * The number of inner nodes in the tree.
      * @return Returns the number of inner nodes.
@@ -111,15 +300,13 @@ public class MerkleTree
      * Traverses the tree in level order.
      * @return Returns a list of the hash codes contained in the tree by walking the tree in a level-order.
      */
-    public SinglyLinkedList<String> breadthFirstTraversal()
+    public SinglyLinkedList<Hash> breadthFirstTraversal()
     {
         // List that stores the hashs.
-        list = new SinglyLinkedList<>();
-        // Queue that we use to traverse in level order.
-        queue = new SinglyLinkedList<>();
-        queue.add(root);
-        // Recursive helper method.
-        levelOrder(null);
+        SinglyLinkedList<Hash> list = new SinglyLinkedList<>();
+        Iterator<Hash> iterator = breadthFirstIterator();
+        while(iterator.hasNext())
+            list.add(iterator.next());
         return list;
     }
     
@@ -128,204 +315,299 @@ public class MerkleTree
      * @param order Is an enumeration representing the three possible depth-first traversals.
      * @return Returns a list of the hash codes contained in the tree by walking the tree in a certain order.
      */
-    public SinglyLinkedList<String> depthFirstTraversal(Order order)
+    public SinglyLinkedList<Hash> depthFirstTraversal(Order order)
     {
         // List that stores the hashes.
-        list = new SinglyLinkedList<>();
-        // Depending on the parameter which order to use.
-        switch(order)
-        {
-            case INORDER:
-                inOrder(root);
-                break;
-            case POSTORDER:
-                postOrder(root);
-                break;
-            case PREORDER:
-                preOrder(root);
-                break;
-        }
+        SinglyLinkedList<Hash> list = new SinglyLinkedList<>();
+        Iterator<Hash> iterator = depthFirstIterator(order);
+        while(iterator.hasNext())
+            list.add(iterator.next());
         return list;
     }
 
     /**
-     * List of the hash codes that are required to prove that a transaction is contained in the block that this Merkle Tree encodes.
-     * The head of the list is the deepest hash code and the tail of the list is the top-most hash code required for the proof.
-     * The root hash code must NOT be added to this list because it's already stored inside each Block.
-     * @param t Transaction to prove.
-     * @return Returns the list of hashs need for the proof.
+     * Lazily walks the tree in level order.
+     * The iterator keeps the path from the root to the next node. Moving to the next position of a level only climbs to the lowest ancestor
+     * shared with the previous node and walks back down its right child, like incrementing a binary counter, so each step costs O(1) amortized
+     * and the only memory used is the path, bounded by the height of the tree.
+     * @return Returns an iterator over the hash codes of the tree in level-order.
      */
-    public SinglyLinkedList<String> extractProof(Transaction t)
+    public Iterator<Hash> breadthFirstIterator()
     {
-        // List that contains the proofs.
-        list = new SinglyLinkedList<>();
-        // Recursive helper method.
-        proof(root, Utilities.cryptographicHashFunction(t.toString()));
-        return list;
-    }
+        return new Iterator<Hash>()
+        {
+            /**
+             * Level of the next node, 0 is the root.
+             */
+            int level = 0;
+            /**
+             * Position of the next node in its level.
+             */
+            int index = 0;
+            /**
+             * Nodes on the path from the root to the next node, the node at depth d is at index d.
+             */
+            final Node[] path = new Node[height + 1];
 
+            {
+                path[0] = root;
+            }
+
+            @Override
+            public boolean hasNext()
+            {
+                return level <= height;
+            }
+
+            @Override
+            public Hash next()
+            {
+                if(!hasNext())
+                    throw new NoSuchElementException();
+                Hash result = path[level].hash;
+                if(index + 1 < 1 << level)
+                {
+                    // The trailing ones of the index are the levels where the path goes right and must now go left,
+                    // the level above them is where it turns right instead.
+                    int turn = level - Integer.numberOfTrailingZeros(~index);
+                    path[turn] = path[turn - 1].right;
+                    for(int depth = turn + 1; depth <= level; depth++)
+                        path[depth] = path[depth - 1].left;
+                    index++;
+                }
+                else
+                {
+                    // Wrap to the leftmost node of the next level.
+                    level++;
+                    index = 0;
+                    if(level <= height)
+                    {
+                        for(int depth = 1; depth <= level; depth++)
+                            path[depth] = path[depth - 1].left;
+                    }
+                }
+                return result;
+            }
+        };
+    }
 
     /**
-     * Node in the tree.
+     * Lazily walks the tree in either post, pre, or in order.
+     * The walk uses an explicit stack bounded by the height of the tree instead of recursion, and allocates nothing per step.
+     * @param order Is an enumeration representing the three possible depth-first traversals.
+     * @return Returns an iterator over the hash codes of the tree in the given order.
      */
-    private class Node implements Comparable<Node>
+    public Iterator<Hash> depthFirstIterator(Order order)
     {
-        /**
-         * Value of the node, in this case its the hash.
-         */
-        String hash;
-        /**
-         * Left child.
-         */
-        Node left;
-        /**
-         * Right child.
-         */
-        Node right;
-
-        /**
-         * Constructor for the node.
-         * @param h Value to assign to the node.
-         */
-        public Node(String h)
-        {
-            hash = h;
-        }
-        /**
-         * Compares nodes.
-         */
-        @Override
-        public int compareTo(Node o) {
-            return hash.compareTo(o.hash);
-        }
+        return new DepthFirstIterator(order);
     }
 
     /**
-     * A field for the helper method that determines if we were on the left side of the tree.
+     * List of the hash codes that are required to prove that a transaction is contained in the block that this Merkle Tree encodes.
+     * The head of the list is the deepest hash code and the tail of the list is the top-most hash code required for the proof.
+     * The root hash code must NOT be added to this list because it's already stored inside each Block.
+     * @param t Transaction to prove.
+     * @return Returns the list of hashs need for the proof, empty if the transaction isn't in the tree.
      */
-    private boolean proofLeft;
+    public SinglyLinkedList<Hash> extractProof(Transaction t)
+    {
+        MerkleProof proof = extractMerkleProof(t);
+        if(proof == null)
+            return new SinglyLinkedList<>();
+        return proof.toList();
+    }
+
     /**
-     * Recursive helper method for extracting proof.
-     * @param root Takes in the root node.
-     * @param hash Takes in the hash that we are proving.
+     * Proof that a transaction is contained in the block that this Merkle Tree encodes, recording the side of every hash.
+     * The leaf is found with the index and only the path from the root to that leaf is walked.
+     * @param t Transaction to prove.
+     * @return Returns the proof, or null if the transaction isn't in the tree.
      */
-    private void proof(Node root, String hash)
+    public MerkleProof extractMerkleProof(Transaction t)
     {
-        // If we reached the end of the tree.
-        if(root.left == null || root.right == null)
-            return;
-        // We go all the way o the left and say we are on the left side of the tree.
-        proof(root.left, hash);
-        proofLeft = true;
-        // If we already found the transaction to prove.
-        if(list.size() > 0)
-        {
-            // And we were on the left side, we add the right side, Else we provide the left side.
-            if(proofLeft)
-            {
-                list.add(root.right.hash);
-            }
-            else
-            {
-                list.add(root.left.hash);
-            }
-            return;
-        }
-        // We go to each right node and say we are on the right side.
-        proof(root.right, hash);
-        proofLeft = false;
-        // If we already found the transaction to prove.
-        if(list.size() > 0)
+        int index = leafIndex.find(hashFunction.hash(t.toString()));
+        if(index < 0)
+            return null;
+
+        Hash[] siblings = new Hash[height];
+        long leftSides = 0;
+        Node current = root;
+        // Bit i of the leaf index says whether the path goes right at the level with i levels below it.
+        for(int level = height - 1; level >= 0; level--)
         {
-            // And we were on the left side, we add the right side, Else we provide the left side.
-            if(proofLeft)
+            if((index >>> level & 1) != 0)
             {
-                list.add(root.right.hash);
+                siblings[level] = current.left.hash;
+                leftSides |= 1L << level;
+                current = current.right;
             }
             else
             {
-                list.add(root.left.hash);
+                siblings[level] = current.right.hash;
+                current = current.left;
             }
-            return;
-        }
-        // Else we just found the transaction on the left side, we provide the right side.
-        else if(root.left.hash.equals(hash))
-        {
-            list.add(root.right.hash);
-            return;
-        }
-        // Else we just found the transaction on the right side, we provide the left side.
-        else if(root.right.hash.equals(hash))
-        {
-            list.add(root.left.hash);
-            return;
         }
+        return new MerkleProof(index, siblings, leftSides);
     }
 
+
     /**
-     * Recursive helper method for levelOrder.
-     * @param current Current node we are on in the iteration.
+     * Proof that several transactions are contained in the block that this Merkle Tree encodes.
+     * Hashes shared by the paths of several transactions are included once, and hashes that can be computed from the transactions are left out.
+     * @param transactions Transactions to prove.
+     * @return Returns the proof, or null if one of the transactions isn't in the tree.
      */
-    private void levelOrder(Node current)
+    public MerkleMultiProof extractMultiProof(Iterable<Transaction> transactions)
     {
-        // If we reached the end of the tree.
-        if(queue.isEmpty())
-        {
-            return;
-        }
-
-        // we remove what was in the queue and add it to the list.
-        current = queue.remove(0);
-        list.add(current.hash);;
-
-        // If the left side isn't null we add to the queue the left side.
-        if(current.left != null)
-            queue.add(current.left);
-        // If the right side isn't null we add to the queue the right side.
-        if(current.right != null)
-            queue.add(current.right);
-        // We recall the method to repeat all the till the end of the tree.
-        levelOrder(null);
+        return MerkleMultiProof.extract(transactions, hashFunction, leafIndex, height, (level, index) -> node(level, index).hash);
     }
 
     /**
-     * Recursive helper method for preOrder.
-     * @param root Root of the tree
+     * Finds a node by walking down from the root.
+     * @param level Number of levels below the node, 0 for a leaf.
+     * @param index Position of the node in its level.
+     * @return Returns the node.
      */
-    private void preOrder(Node root)
+    private Node node(int level, int index)
     {
-        if(root == null)
-            return;
-        list.add(root.hash);
-        preOrder(root.left);
-        preOrder(root.right);
+        Node current = root;
+        // The bits of the index, highest first, say which way to go at each level.
+        for(int l = height - 1; l >= level; l--)
+            current = (index >>> (l - level) & 1) != 0 ? current.right : current.left;
+        return current;
     }
 
     /**
-     * Recursive helper method for inOrder.
-     * @param root Root of the tree
+     * Iterator for the depth first traversals.
+     * Each frame of the stack remembers how far its node has got: 0 means neither child has been visited, 1 means the left child has been visited
+     * and 2 means both have. A node is returned on entering its frame for a pre-order walk, between its children for in-order and on leaving for post-order.
      */
-    private void inOrder(Node root)
+    private class DepthFirstIterator implements Iterator<Hash>
     {
-        if(root == null)
-            return;
-        
-        inOrder(root.left);
-        list.add(root.hash);
-        inOrder(root.right);
+        /**
+         * The order of the traversal.
+         */
+        private final Order order;
+        /**
+         * Nodes on the path from the root to the current node.
+         */
+        private final Node[] stack = new Node[height + 1];
+        /**
+         * How far each node of the stack has got.
+         */
+        private final byte[] states = new byte[height + 1];
+        /**
+         * Number of frames on the stack.
+         */
+        private int depth;
+        /**
+         * The next hash to return, or null at the end of the walk.
+         */
+        private Hash next;
+
+        /**
+         * Constructor for the iterator.
+         * @param order The order of the traversal.
+         */
+        DepthFirstIterator(Order order)
+        {
+            this.order = order;
+            push(root);
+            advance();
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return next != null;
+        }
+
+        @Override
+        public Hash next()
+        {
+            if(next == null)
+                throw new NoSuchElementException();
+            Hash result = next;
+            advance();
+            return result;
+        }
+
+        /**
+         * Runs the walk until the next node to return.
+         */
+        private void advance()
+        {
+            next = null;
+            while(depth > 0 && next == null)
+            {
+                Node current = stack[depth - 1];
+                switch(states[depth - 1]++)
+                {
+                    case 0:
+                        if(order == Order.PREORDER)
+                            next = current.hash;
+                        if(current.left != null)
+                            push(current.left);
+                        break;
+                    case 1:
+                        if(order == Order.INORDER)
+                            next = current.hash;
+                        if(current.right != null)
+                            push(current.right);
+                        break;
+                    default:
+                        if(order == Order.POSTORDER)
+                            next = current.hash;
+                        depth--;
+                        break;
+                }
+            }
+        }
+
+        /**
+         * Adds a node to the top of the stack.
+         * @param node The node to add.
+         */
+        private void push(Node node)
+        {
+            stack[depth] = node;
+            states[depth] = 0;
+            depth++;
+        }
     }
 
     /**
-     * Recursive helper method for postOrder.
-     * @param root Root of the tree
+     * Node in the tree.
      */
-    private void postOrder(Node root)
+    private class Node implements Comparable<Node>
     {
-        if(root == null)
-            return;
-        
-        postOrder(root.left);
-        postOrder(root.right);
-        list.add(root.hash);
+        /**
+         * Value of the node, in this case its the hash.
+         */
+        Hash hash;
+        /**
+         * Left child.
+         */
+        Node left;
+        /**
+         * Right child.
+         */
+        Node right;
+
+        /**
+         * Constructor for the node.
+         * @param h Value to assign to the node.
+         */
+        public Node(Hash h)
+        {
+            hash = h;
+        }
+        /**
+         * Compares nodes.
+         */
+        @Override
+        public int compareTo(Node o) {
+            return hash.compareTo(o.hash);
+        }
     }
 }
@@ -0,0 +1,224 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of built Merkle Trees keyed by the root hash of their block together with its hash function and combiner,
+ * evicting the least recently used trees to stay within a memory budget. A block whose tree parameters change is looked up under the new ones,
+ * so it never gets back a tree built with the old ones.
+ * An evicted tree is rebuilt from its Block the next time it's asked for, using the hash function and combiner recorded in the block.
+ * Trees are immutable, so the same tree can be handed to many threads; the cache itself is synchronized.
+ */
+public class MerkleTreeCache
+{
+    /**
+     * The cached trees from least to most recently used.
+     */
+    private final LinkedHashMap<Key, MerkleTree> trees = new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * Maximum estimated number of bytes of the cached trees.
+     */
+    private final long maxBytes;
+    /**
+     * Estimated number of bytes of the cached trees.
+     */
+    private long usedBytes;
+    /**
+     * Number of lookups that found their tree in the cache.
+     */
+    private long hits;
+    /**
+     * Number of lookups that had to build their tree.
+     */
+    private long misses;
+    /**
+     * Number of trees evicted to stay within the budget.
+     */
+    private long evictions;
+
+    /**
+     * Constructor for the cache.
+     * @param maxBytes Maximum estimated number of bytes of the cached trees.
+     */
+    public MerkleTreeCache(long maxBytes)
+    {
+        if(maxBytes <= 0)
+            throw new RuntimeException("Invalid memory budget: " + maxBytes);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Gets the tree of a block, building it if it isn't cached.
+     * A block without a root hash yet gets one from the new tree, hashed with its recorded hash function and combiner.
+     * @param block The block to get the tree of.
+     * @return Returns the Merkle Tree of the block.
+     */
+    public MerkleTree get(Block block)
+    {
+        if(block == null)
+            throw new RuntimeException("Block is null");
+        if(block.getRootHash() != null)
+        {
+            Key key = new Key(block);
+            synchronized(this)
+            {
+                MerkleTree tree = trees.get(key);
+                if(tree != null)
+                {
+                    hits++;
+                    return tree;
+                }
+            }
+        }
+
+        // Build outside the lock so a slow build doesn't hold up hits on other blocks.
+        MerkleTree tree = new MerkleTree(block, block.getHashFunction(), block.getCombiner());
+        Key key = new Key(block);
+        synchronized(this)
+        {
+            misses++;
+            MerkleTree cached = trees.get(key);
+            if(cached != null)
+                return cached;
+            // A tree larger than the whole budget is returned but not kept.
+            long size = tree.memoryFootprint();
+            if(size > maxBytes)
+                return tree;
+            trees.put(key, tree);
+            usedBytes += size;
+            evict();
+        }
+        return tree;
+    }
+
+    /**
+     * Removes every tree from the cache, the counters are kept.
+     */
+    public synchronized void clear()
+    {
+        trees.clear();
+        usedBytes = 0;
+    }
+
+    /**
+     * Number of trees in the cache.
+     * @return Returns the number of cached trees.
+     */
+    public synchronized int size()
+    {
+        return trees.size();
+    }
+
+    /**
+     * Estimated number of bytes of the cached trees.
+     * @return Returns the bytes used out of the budget.
+     */
+    public synchronized long getUsedBytes()
+    {
+        return usedBytes;
+    }
+
+    /**
+     * Maximum estimated number of bytes of the cached trees.
+     * @return Returns the memory budget.
+     */
+    public long getMaxBytes()
+    {
+        return maxBytes;
+    }
+
+    /**
+     * Number of lookups that found their tree in the cache.
+     * @return Returns the number of hits.
+     */
+    public synchronized long getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * Number of lookups that had to build their tree.
+     * @return Returns the number of misses.
+     */
+    public synchronized long getMisses()
+    {
+        return misses;
+    }
+
+    /**
+     * Number of trees evicted to stay within the budget.
+     * @return Returns the number of evictions.
+     */
+    public synchronized long getEvictions()
+    {
+        return evictions;
+    }
+
+    /**
+     * Evicts the least recently used trees until the cache is within the budget.
+     */
+    private void evict()
+    {
+        Iterator<Map.Entry<Key, MerkleTree>> iterator = trees.entrySet().iterator();
+        while(usedBytes > maxBytes && iterator.hasNext())
+        {
+            usedBytes -= iterator.next().getValue().memoryFootprint();
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * What a tree is cached under: the root hash of its block and the parameters the tree was built with.
+     */
+    private static final class Key
+    {
+        /**
+         * The root hash of the block.
+         */
+        private final Hash rootHash;
+        /**
+         * Name of the hash function of the tree.
+         */
+        private final String algorithm;
+        /**
+         * How the tree merged the hashes of two children.
+         */
+        private final Combiner combiner;
+
+        /**
+         * Constructor for the key of a block.
+         * @param block The block, with its root hash set.
+         */
+        Key(Block block)
+        {
+            rootHash = block.getRootHash();
+            algorithm = block.getHashFunction().getAlgorithm();
+            combiner = block.getCombiner();
+        }
+
+        /**
+         * Two keys are equal when the root hash and both tree parameters are equal.
+         * @param o The object to compare to.
+         * @return Returns true if the keys are equal, false otherwise.
+         */
+        @Override
+        public boolean equals(Object o)
+        {
+            if(!(o instanceof Key))
+                return false;
+            Key k = (Key) o;
+            return rootHash.equals(k.rootHash) && algorithm.equals(k.algorithm) && combiner == k.combiner;
+        }
+
+        /**
+         * The root hash is already uniformly distributed, the parameters only separate the same root under different trees.
+         * @return Returns the hash code.
+         */
+        @Override
+        public int hashCode()
+        {
+            return 31 * (31 * rootHash.hashCode() + algorithm.hashCode()) + combiner.hashCode();
+        }
+    }
+}
@@ -0,0 +1,186 @@
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checks that one MerkleTree and one FlatMerkleTree can serve many threads at the same time.
+ * The answers of every proof, verification and traversal are first computed on the main thread, then N threads
+ * ask the same shared trees for them over and over, each starting at a different transaction, and every answer is compared with the sequential one.
+ * Exits with status 1 if any answer differs.
+ */
+public class MerkleTreeStress
+{
+    /**
+     * Main method.
+     * Usage: java MerkleTreeStress [threads] [transactions] [rounds].
+     * @param args Takes in up to three arguments.
+     */
+    public static void main(String[] args) throws InterruptedException
+    {
+        int numThreads = args.length > 0 ? Integer.parseInt(args[0]) : 2 * Runtime.getRuntime().availableProcessors();
+        int numTransactions = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        final int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        // Some transactions repeat, so the trees also have to agree on which leaf proves a duplicate.
+        Block block = new Block();
+        for(int i = 0; i < numTransactions; i++)
+            block.addTransaction(new Transaction("S" + (i % 97), "R" + (i % 89), i % (numTransactions / 2 + 1), i % 13));
+        final Transaction[] transactions = block.getTransactions();
+        final MerkleTree tree = new MerkleTree(block, HashEngine.SHA256, Combiner.ORDERED_CONCAT, MerkleTree.DEFAULT_PARALLEL_CUTOFF);
+        final FlatMerkleTree flat = new FlatMerkleTree(block, HashEngine.SHA256, Combiner.ORDERED_CONCAT);
+        final Transaction missing = new Transaction("nobody", "nobody", -1, -1);
+
+        // The sequential answers.
+        final MerkleProof[] proofs = new MerkleProof[transactions.length];
+        final boolean[] verified = new boolean[transactions.length];
+        for(int i = 0; i < transactions.length; i++)
+        {
+            proofs[i] = tree.extractMerkleProof(transactions[i]);
+            verified[i] = Utilities.verifyTransaction(transactions[i], proofs[i], block);
+        }
+        final Hash[] breadthFirst = toArray(tree.breadthFirstIterator());
+        final Hash[][] depthFirst = new Hash[Order.values().length][];
+        for(Order order : Order.values())
+            depthFirst[order.ordinal()] = toArray(tree.depthFirstIterator(order));
+        final Block shared = block;
+
+        final AtomicLong checks = new AtomicLong();
+        final AtomicLong mismatches = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[numThreads];
+        for(int n = 0; n < numThreads; n++)
+        {
+            final int offset = (int) ((long) n * transactions.length / numThreads);
+            threads[n] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                    }
+                    catch(InterruptedException e)
+                    {
+                        return;
+                    }
+                    long done = 0;
+                    long wrong = 0;
+                    for(int round = 0; round < rounds; round++)
+                    {
+                        for(int k = 0; k < transactions.length; k++)
+                        {
+                            int i = (offset + k) % transactions.length;
+                            Transaction t = transactions[i];
+                            MerkleProof fromTree = tree.extractMerkleProof(t);
+                            MerkleProof fromFlat = flat.extractMerkleProof(t);
+                            if(!sameProof(fromTree, proofs[i]) || !sameProof(fromFlat, proofs[i]))
+                                wrong++;
+                            if(!sameList(tree.extractProof(t), proofs[i].toList()) || !sameList(flat.extractProof(t), proofs[i].toList()))
+                                wrong++;
+                            if(Utilities.verifyTransaction(t, fromTree, shared) != verified[i] || Utilities.verifyTransaction(t, fromFlat, shared) != verified[i])
+                                wrong++;
+                            done += 4;
+                        }
+                        if(tree.extractMerkleProof(missing) != null || flat.extractMerkleProof(missing) != null)
+                            wrong++;
+                        // Every traversal of both trees, while the other threads are still extracting proofs.
+                        if(!sameHashes(tree.breadthFirstIterator(), breadthFirst) || !sameHashes(tree.breadthFirstTraversal().iterator(), breadthFirst)
+                            || !sameHashes(flat.breadthFirstTraversal().iterator(), breadthFirst))
+                            wrong++;
+                        for(Order order : Order.values())
+                        {
+                            Hash[] expected = depthFirst[order.ordinal()];
+                            if(!sameHashes(tree.depthFirstIterator(order), expected) || !sameHashes(tree.depthFirstTraversal(order).iterator(), expected)
+                                || !sameHashes(flat.depthFirstTraversal(order).iterator(), expected))
+                                wrong++;
+                        }
+                        done += 1 + 3 * (1 + Order.values().length);
+                    }
+                    checks.addAndGet(done);
+                    mismatches.addAndGet(wrong);
+                }
+            });
+            threads[n].start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for(Thread thread : threads)
+            thread.join();
+        long elapsed = (System.nanoTime() - begin) / 1000000;
+
+        System.out.println(String.format("%d threads, %d transactions, %d rounds: %d checks in %d ms, %d mismatches",
+            numThreads, transactions.length, rounds, checks.get(), elapsed, mismatches.get()));
+        if(mismatches.get() != 0)
+        {
+            System.out.println("FAILED");
+            System.exit(1);
+        }
+        System.out.println("PASSED");
+    }
+
+    /**
+     * Whether two proofs prove the same leaf with the same hashes on the same sides.
+     * @param a The first proof, may be null.
+     * @param b The second proof, may be null.
+     * @return Returns true if the proofs are the same.
+     */
+    private static boolean sameProof(MerkleProof a, MerkleProof b)
+    {
+        if(a == null || b == null)
+            return a == b;
+        if(a.getLeafIndex() != b.getLeafIndex() || a.getLeftSides() != b.getLeftSides() || a.size() != b.size())
+            return false;
+        for(int i = 0; i < a.size(); i++)
+        {
+            if(!a.getSibling(i).equals(b.getSibling(i)))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Whether two lists hold the same hashes in the same order.
+     * @param a The first list.
+     * @param b The second list.
+     * @return Returns true if the lists are the same.
+     */
+    private static boolean sameList(SinglyLinkedList<Hash> a, SinglyLinkedList<Hash> b)
+    {
+        return a.size() == b.size() && sameHashes(a.iterator(), toArray(b.iterator()));
+    }
+
+    /**
+     * Whether an iterator returns exactly the expected hashes.
+     * @param iterator The iterator to check.
+     * @param expected The hashes it should return, in order.
+     * @return Returns true if the hashes are the same.
+     */
+    private static boolean sameHashes(Iterator<Hash> iterator, Hash[] expected)
+    {
+        for(Hash h : expected)
+        {
+            if(!iterator.hasNext() || !iterator.next().equals(h))
+                return false;
+        }
+        return !iterator.hasNext();
+    }
+
+    /**
+     * Collects the hashes of an iterator.
+     * @param iterator The iterator.
+     * @return Returns an array of the hashes in order.
+     */
+    private static Hash[] toArray(Iterator<Hash> iterator)
+    {
+        SinglyLinkedList<Hash> list = new SinglyLinkedList<>();
+        while(iterator.hasNext())
+            list.add(iterator.next());
+        Hash[] hashes = new Hash[list.size()];
+        int i = 0;
+        for(Hash h : list)
+            hashes[i++] = h;
+        return hashes;
+    }
+}
@@ -0,0 +1,69 @@
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Table of the hashes of subtrees made only of DUMMY padding leaves.
+ * A padded subtree of height k always hashes to the same value for a given hash function and combiner,
+ * so it is computed once per level and shared by every tree instead of being rehashed for each block.
+ */
+public final class PaddingHashes
+{
+    /**
+     * The string hashed for every padding leaf.
+     */
+    public static final String DUMMY = "DUMMY";
+    /**
+     * Number of levels in the table, enough for any tree whose leaves can be counted with an int.
+     */
+    public static final int LEVELS = 32;
+    /**
+     * The tables that have been computed, by hash algorithm and combiner.
+     */
+    private static final ConcurrentHashMap<String, PaddingHashes> TABLES = new ConcurrentHashMap<>();
+
+    /**
+     * The hash of a padded subtree of height k is stored at index k.
+     */
+    private final Hash[] levels = new Hash[LEVELS];
+
+    /**
+     * Constructor for the table, computes every level.
+     * @param hashFunction The hash function used for the leaves and inner nodes.
+     * @param combiner How the hashes of two children are merged into their parent.
+     */
+    private PaddingHashes(HashFunction hashFunction, Combiner combiner)
+    {
+        levels[0] = hashFunction.hash(DUMMY);
+        for(int i = 1; i < LEVELS; i++)
+            levels[i] = combiner.combine(hashFunction, levels[i - 1], levels[i - 1]);
+    }
+
+    /**
+     * Gets the shared table for a hash function and combiner, computing it the first time it's needed.
+     * @param hashFunction The hash function used for the leaves and inner nodes.
+     * @param combiner How the hashes of two children are merged into their parent.
+     * @return Returns the table.
+     */
+    public static PaddingHashes of(HashFunction hashFunction, Combiner combiner)
+    {
+        String key = hashFunction.getAlgorithm() + "/" + combiner.name();
+        PaddingHashes table = TABLES.get(key);
+        if(table == null)
+        {
+            TABLES.putIfAbsent(key, new PaddingHashes(hashFunction, combiner));
+            table = TABLES.get(key);
+        }
+        return table;
+    }
+
+    /**
+     * The hash of a subtree made only of padding leaves.
+     * @param height Height of the subtree, 0 is a single padding leaf.
+     * @return Returns the hash of the subtree.
+     */
+    public Hash level(int height)
+    {
+        if(height < 0 || height >= LEVELS)
+            throw new RuntimeException("Invalid height: " + height);
+        return levels[height];
+    }
+}
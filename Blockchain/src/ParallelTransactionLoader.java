@@ -0,0 +1,344 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads a transaction file on several threads.
+ * The file is cut into chunks that end at the end of a line, each chunk is memory-mapped and parsed by a TransactionFileReader on a worker,
+ * and the chunks are handed to the queue in file order, so the queue is the same as with a sequential load, ties between equal fees included.
+ * Each chunk is dropped as soon as the queue has taken it, so at the peak only one chunk is held both by the loader and by the queue. The size and speed of the last load are kept so the number of threads can be tuned.
+ */
+public class ParallelTransactionLoader
+{
+    /**
+     * Largest chunk, small enough that a chunk plus its last line always fits in one mapping.
+     */
+    private static final long MAX_CHUNK = 1 << 28;
+    /**
+     * Number of chunks per thread, more than one so a thread that finishes early can take another chunk.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /**
+     * Number of worker threads.
+     */
+    private final int threads;
+    /**
+     * Size in bytes of the last file loaded.
+     */
+    private long lastBytes;
+    /**
+     * Number of transactions in the last file loaded.
+     */
+    private long lastTransactions;
+    /**
+     * Time the last load took, in nanoseconds.
+     */
+    private long lastNanos;
+
+    /**
+     * Constructor for the loader, with one thread per processor.
+     */
+    public ParallelTransactionLoader()
+    {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor for the loader.
+     * @param threads Number of worker threads.
+     */
+    public ParallelTransactionLoader(int threads)
+    {
+        if(threads < 1)
+            throw new RuntimeException("Invalid number of threads: " + threads);
+        this.threads = threads;
+    }
+
+    /**
+     * Reads the transactions from a text file into a new priority queue.
+     * @param pgmFile The filename of the text file.
+     * @return Returns a queue of the Transactions.
+     */
+    public PriorityLine<Transaction> load(String pgmFile)
+    {
+        return load(pgmFile, new PriorityLine<Transaction>());
+    }
+
+    /**
+     * Reads the transactions from a text file and adds them to the given priority queue in file order.
+     * They are added on the calling thread, so a BoundedMempool with the BLOCK policy is refused like in Utilities.loadTransactions.
+     * @param pgmFile The filename of the text file.
+     * @param <Q> Type of the queue.
+     * @param priorityLine The queue to add the transactions to.
+     * @return Returns the same queue.
+     */
+    public <Q extends AbstractPriorityLine<Transaction>> Q load(String pgmFile, Q priorityLine)
+    {
+        BoundedMempool.requireNonBlocking(priorityLine);
+        long begin = System.nanoTime();
+        final ArrayList<ArrayList<Transaction>> chunks;
+        long size;
+        try(FileChannel channel = FileChannel.open(Paths.get(pgmFile), StandardOpenOption.READ))
+        {
+            size = channel.size();
+            chunks = parseChunks(channel, chunkBoundaries(channel, size));
+        }
+        catch(NoSuchFileException e)
+        {
+            throw new RuntimeException("File: " + pgmFile + " not found");
+        }
+        catch(IOException e)
+        {
+            throw new RuntimeException("File: " + pgmFile + " could not be read: " + e.getMessage());
+        }
+
+        long total = 0;
+        for(ArrayList<Transaction> chunk : chunks)
+            total += chunk.size();
+        final int count = (int) Math.min(total, Integer.MAX_VALUE);
+        // A collection tells the queue how many transactions are coming, so a PriorityLine grows its heap once.
+        priorityLine.enqueueAll(new AbstractCollection<Transaction>()
+        {
+            @Override
+            public int size()
+            {
+                return count;
+            }
+
+            @Override
+            public Iterator<Transaction> iterator()
+            {
+                return new Iterator<Transaction>()
+                {
+                    /**
+                     * Index of the next chunk.
+                     */
+                    int next = 0;
+                    /**
+                     * The chunk being handed over.
+                     */
+                    Iterator<Transaction> current = Collections.emptyIterator();
+
+                    @Override
+                    public boolean hasNext()
+                    {
+                        while(!current.hasNext() && next < chunks.size())
+                        {
+                            current = chunks.get(next).iterator();
+                            chunks.set(next++, null);
+                        }
+                        return current.hasNext();
+                    }
+
+                    @Override
+                    public Transaction next()
+                    {
+                        if(!hasNext())
+                            throw new NoSuchElementException();
+                        return current.next();
+                    }
+                };
+            }
+        });
+
+        lastBytes = size;
+        lastTransactions = total;
+        lastNanos = System.nanoTime() - begin;
+        return priorityLine;
+    }
+
+    /**
+     * Number of worker threads.
+     * @return Returns the number of threads.
+     */
+    public int getThreads()
+    {
+        return threads;
+    }
+
+    /**
+     * Size of the last file loaded.
+     * @return Returns the size in bytes.
+     */
+    public long getLastBytes()
+    {
+        return lastBytes;
+    }
+
+    /**
+     * Number of transactions in the last file loaded.
+     * @return Returns the number of transactions.
+     */
+    public long getLastTransactions()
+    {
+        return lastTransactions;
+    }
+
+    /**
+     * Time the last load took, from opening the file to the queue being filled.
+     * @return Returns the time in milliseconds.
+     */
+    public long getLastMillis()
+    {
+        return lastNanos / 1000000;
+    }
+
+    /**
+     * Speed of the last load.
+     * @return Returns the megabytes read per second.
+     */
+    public double getMegabytesPerSecond()
+    {
+        return lastNanos == 0 ? 0 : lastBytes / 1e6 / (lastNanos / 1e9);
+    }
+
+    /**
+     * Speed of the last load.
+     * @return Returns the transactions read per second.
+     */
+    public double getTransactionsPerSecond()
+    {
+        return lastNanos == 0 ? 0 : lastTransactions / (lastNanos / 1e9);
+    }
+
+    /**
+     * Describes the last load.
+     * @return Returns the size, time and speed of the last load.
+     */
+    public String report()
+    {
+        return String.format("%d transactions, %.1f MB in %d ms on %d threads: %.1f MB/s, %.0f transactions/s",
+            lastTransactions, lastBytes / 1e6, getLastMillis(), threads, getMegabytesPerSecond(), getTransactionsPerSecond());
+    }
+
+    /**
+     * Cuts the file into chunks of about the same size that each end right after a line.
+     * @param channel The open file.
+     * @param size Size of the file.
+     * @return Returns the offsets where the chunks start, followed by the size of the file.
+     */
+    private long[] chunkBoundaries(FileChannel channel, long size) throws IOException
+    {
+        long target = Math.max(1, Math.min(MAX_CHUNK, size / ((long) threads * CHUNKS_PER_THREAD) + 1));
+        ArrayList<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+        ByteBuffer probe = ByteBuffer.allocate(1 << 16);
+        long start = 0;
+        while(start < size)
+        {
+            long next = start + target;
+            if(next >= size)
+                break;
+            // Move the cut forward to just after the next end of line.
+            long lineEnd = -1;
+            for(long pos = next; lineEnd < 0 && pos < size; pos += probe.limit())
+            {
+                probe.clear();
+                channel.read(probe, pos);
+                probe.flip();
+                for(int i = 0; i < probe.limit(); i++)
+                {
+                    if(probe.get(i) == '\n')
+                    {
+                        lineEnd = pos + i + 1;
+                        break;
+                    }
+                }
+            }
+            if(lineEnd < 0 || lineEnd >= size)
+                break;
+            if(lineEnd - start > Integer.MAX_VALUE)
+                throw new RuntimeException("Line starting near byte " + next + " is too long");
+            boundaries.add(lineEnd);
+            start = lineEnd;
+        }
+        if(size - start > Integer.MAX_VALUE)
+            throw new RuntimeException("Line starting near byte " + start + " is too long");
+        boundaries.add(size);
+
+        long[] result = new long[boundaries.size()];
+        for(int i = 0; i < result.length; i++)
+            result[i] = boundaries.get(i);
+        return result;
+    }
+
+    /**
+     * Parses every chunk on the worker threads.
+     * @param channel The open file.
+     * @param boundaries The offsets where the chunks start, followed by the size of the file.
+     * @return Returns the transactions of each chunk, in file order.
+     */
+    private ArrayList<ArrayList<Transaction>> parseChunks(final FileChannel channel, long[] boundaries) throws IOException
+    {
+        int numChunks = boundaries.length - 1;
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, Math.max(numChunks, 1)));
+        try
+        {
+            ArrayList<Future<ArrayList<Transaction>>> results = new ArrayList<>();
+            final long[] lines = new long[numChunks];
+            for(int c = 0; c < numChunks; c++)
+            {
+                final int chunk = c;
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, boundaries[c], boundaries[c + 1] - boundaries[c]);
+                results.add(pool.submit(new Callable<ArrayList<Transaction>>()
+                {
+                    @Override
+                    public ArrayList<Transaction> call()
+                    {
+                        ArrayList<Transaction> parsed = new ArrayList<>();
+                        // Lines are counted from 1 in each chunk, and shifted once the lines of the chunks before are known.
+                        lines[chunk] = new TransactionFileReader().parse(buffer, 1, parsed::add)[0] - 1;
+                        return parsed;
+                    }
+                }));
+            }
+
+            ArrayList<ArrayList<Transaction>> chunks = new ArrayList<>(numChunks);
+            long linesBefore = 0;
+            for(int c = 0; c < numChunks; c++)
+            {
+                try
+                {
+                    chunks.add(results.get(c).get());
+                }
+                catch(ExecutionException e)
+                {
+                    if(e.getCause() instanceof TransactionFormatException)
+                    {
+                        TransactionFormatException error = (TransactionFormatException) e.getCause();
+                        throw new TransactionFormatException(linesBefore + error.getLine(), error.getReason());
+                    }
+                    if(e.getCause() instanceof RuntimeException)
+                        throw (RuntimeException) e.getCause();
+                    throw new RuntimeException(e.getCause());
+                }
+                catch(InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while loading transactions");
+                }
+                linesBefore += lines[c];
+            }
+            return chunks;
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+    }
+}
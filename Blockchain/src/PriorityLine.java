@@ -1,76 +1,271 @@
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
  * Implements a priority queue.
+ * The elements are kept in an array-backed binary max-heap, so enqueue and dequeue take O(log n) instead of a scan of the whole queue.
+ * Elements that compare as equal are dequeued in the order they were enqueued, the same order the queue has always used,
+ * so the contents of the blocks built from it stay the same from one run to the next.
+ * Nothing is allocated until the first element is enqueued, so an unused queue costs only the object itself.
  * @param <T> Generic object type.
  */
-public class PriorityLine<T extends Comparable<T>> implements Iterable<T>
+public class PriorityLine<T extends Comparable<T>> extends AbstractPriorityLine<T>
 {
     /**
-     * Linked list that we use for the queue.
+     * Capacity of the heap once the first element is enqueued.
      */
-    private SinglyLinkedList<T> singlyLinkedList;
+    private static final int INITIAL_CAPACITY = 16;
+    /**
+     * Heap of every queue that has never held an element.
+     */
+    private static final Object[] EMPTY_HEAP = new Object[0];
+    /**
+     * Sequence numbers of every queue that has never held an element.
+     */
+    private static final long[] EMPTY_SEQUENCE = new long[0];
+
+    /**
+     * The heap, the element at index i is never lower than the elements at 2i+1 and 2i+2.
+     */
+    private Object[] heap;
+    /**
+     * When each element of the heap was enqueued, used to break ties.
+     */
+    private long[] sequence;
+    /**
+     * Number of elements in the queue.
+     */
+    private int size;
+    /**
+     * Sequence number given to the next element enqueued.
+     */
+    private long nextSequence;
 
     /**
      * Constructor for the queue.
      */
     public PriorityLine()
     {
-        singlyLinkedList = new SinglyLinkedList<>();
+        heap = EMPTY_HEAP;
+        sequence = EMPTY_SEQUENCE;
+    }
+
+    /**
+     * Constructor for a queue that starts with the given elements, built in linear time.
+     * Equal elements are dequeued in the order the iterable gives them.
+     * @param elements The elements to enqueue.
+     */
+    public PriorityLine(Iterable<? extends T> elements)
+    {
+        this();
+        enqueueAll(elements);
     }
 
     /**
      * Inserts the element given into its proper location based on its value (Descending order).
      * @param element The element to insert.
      */
+    @Override
     public void enqueue(T element)
     {
-        singlyLinkedList.insert(element);
+        ensureCapacity(size + 1);
+        heap[size] = element;
+        sequence[size] = nextSequence++;
+        siftUp(size++);
+    }
+
+    /**
+     * Inserts all the elements given, in the order the iterable gives them.
+     * When the elements outnumber the queue the whole heap is rebuilt at once in linear time instead of inserting them one by one.
+     * @param elements The elements to insert.
+     */
+    @Override
+    public void enqueueAll(Iterable<? extends T> elements)
+    {
+        int before = size;
+        // A collection says how many elements are coming, so the heap is grown once.
+        if(elements instanceof Collection)
+            ensureCapacity((int) Math.min((long) size + ((Collection<?>) elements).size(), Integer.MAX_VALUE - 8));
+        for(T element : elements)
+        {
+            ensureCapacity(size + 1);
+            heap[size] = element;
+            sequence[size++] = nextSequence++;
+        }
+        if(size - before > before)
+        {
+            for(int i = size / 2 - 1; i >= 0; i--)
+                siftDown(i);
+        }
+        else
+        {
+            for(int i = before; i < size; i++)
+                siftUp(i);
+        }
     }
 
     /**
      * Dequeues the first element in the queue.
      * @return Returns the removed element.
      */
+    @Override
     public T dequeue()
     {
-        return singlyLinkedList.remove(0);
+        T top = peek();
+        size--;
+        heap[0] = heap[size];
+        sequence[0] = sequence[size];
+        heap[size] = null;
+        if(size > 0)
+            siftDown(0);
+        return top;
     }
 
     /**
      * The size of the queue.
      * @return Returns the size.
      */
+    @Override
     public int size()
     {
-        return singlyLinkedList.size();
+        return size;
     }
 
     /**
      * Determines whether the queue is empty or not.
      * @return Returns true if it's empty, false otherwise.
      */
+    @Override
     public boolean isEmpty()
     {
-        return singlyLinkedList.isEmpty();
+        return size == 0;
     }
 
     /**
      * Retreives the first element in the queue that will be removed when dequeue is called.
      * @return Retunrs the element to be dequeued.
      */
+    @Override
     public T peek()
     {
-        return singlyLinkedList.get(0);
+        if(size == 0)
+            throw new RuntimeException("Queue is empty");
+        return element(0);
     }
 
     /**
-     * Iterates through the queue.
+     * Iterates through the queue in the order the elements would be dequeued, without removing them.
+     * The heap is copied once when the iterator is created and each step takes O(log n).
      * @return Retunrs an iterator thats used to iterate through the queue.
      */
     @Override
-    public Iterator<T> iterator() 
+    public Iterator<T> iterator()
+    {
+        final PriorityLine<T> copy = new PriorityLine<>();
+        copy.heap = Arrays.copyOf(heap, Math.max(size, 1));
+        copy.sequence = Arrays.copyOf(sequence, Math.max(size, 1));
+        copy.size = size;
+        return new Iterator<T>()
+        {
+            @Override
+            public boolean hasNext()
+            {
+                return !copy.isEmpty();
+            }
+
+            @Override
+            public T next()
+            {
+                if(copy.isEmpty())
+                    throw new NoSuchElementException();
+                return copy.dequeue();
+            }
+        };
+    }
+
+    /**
+     * Moves an element up the heap until its parent is not lower.
+     * @param index Index of the element.
+     */
+    private void siftUp(int index)
+    {
+        Object element = heap[index];
+        long order = sequence[index];
+        while(index > 0)
+        {
+            int parent = (index - 1) / 2;
+            if(!before(element, order, heap[parent], sequence[parent]))
+                break;
+            heap[index] = heap[parent];
+            sequence[index] = sequence[parent];
+            index = parent;
+        }
+        heap[index] = element;
+        sequence[index] = order;
+    }
+
+    /**
+     * Moves an element down the heap until none of its children are higher.
+     * @param index Index of the element.
+     */
+    private void siftDown(int index)
+    {
+        Object element = heap[index];
+        long order = sequence[index];
+        while(2 * index + 1 < size)
+        {
+            int child = 2 * index + 1;
+            if(child + 1 < size && before(heap[child + 1], sequence[child + 1], heap[child], sequence[child]))
+                child++;
+            if(!before(heap[child], sequence[child], element, order))
+                break;
+            heap[index] = heap[child];
+            sequence[index] = sequence[child];
+            index = child;
+        }
+        heap[index] = element;
+        sequence[index] = order;
+    }
+
+    /**
+     * Whether one element is dequeued before another: the higher one goes first, and the one enqueued first if they are equal.
+     * @param a The first element.
+     * @param aOrder Sequence number of the first element.
+     * @param b The second element.
+     * @param bOrder Sequence number of the second element.
+     * @return Returns true if the first element is dequeued first.
+     */
+    @SuppressWarnings("unchecked")
+    private boolean before(Object a, long aOrder, Object b, long bOrder)
+    {
+        int comparison = ((T) a).compareTo((T) b);
+        return comparison > 0 || (comparison == 0 && aOrder < bOrder);
+    }
+
+    /**
+     * Makes sure the heap has room for a number of elements, doubling it when it doesn't.
+     * @param capacity Number of elements needed.
+     */
+    private void ensureCapacity(int capacity)
+    {
+        if(capacity > heap.length)
+        {
+            int newCapacity = Math.max(capacity, Math.max(INITIAL_CAPACITY, 2 * heap.length));
+            heap = Arrays.copyOf(heap, newCapacity);
+            sequence = Arrays.copyOf(sequence, newCapacity);
+        }
+    }
+
+    /**
+     * The element at an index of the heap.
+     * @param index Index of the element.
+     * @return Returns the element.
+     */
+    @SuppressWarnings("unchecked")
+    private T element(int index)
     {
-        return singlyLinkedList.iterator();
+        return (T) heap[index];
     }
 }
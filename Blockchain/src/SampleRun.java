@@ -34,14 +34,14 @@ public class SampleRun
             
             System.out.println("\nMerkle Tree:");
             MerkleTree mt = new MerkleTree(b);
-            System.out.println(String.format("\nHeight: %d\nInnerNodes: %d\nRoot Hash Code: %s", mt.height(), mt.innerNodes(), b.getRootHash()));
+            System.out.println(String.format("\nHeight: %d\nInnerNodes: %d\nRoot Hash Code: %s", mt.height(), mt.innerNodes(), b.getRootHash().toHex()));
 
             
-            SinglyLinkedList<String> walk = mt.depthFirstTraversal(Order.INORDER);
+            SinglyLinkedList<Hash> walk = mt.depthFirstTraversal(Order.INORDER);
 
             System.out.println("\nIn-order traversal of Merkle tree");
-            for(String s : walk)
-                System.out.println(s);
+            for(Hash h : walk)
+                System.out.println(h.toHex());
 
             Transaction lookupExisting = new Transaction("sender8", "receiver8", 12305, 4);
             Transaction lookupNonExisting = new Transaction("sender8", "receiver8", 12305, 5);
@@ -49,10 +49,10 @@ public class SampleRun
             System.out.println("\nExisting transaction for lookup: " + lookupExisting);
             System.out.println("\nNon-existing transaction for lookup: " + lookupNonExisting);
             
-            SinglyLinkedList<String> proof = mt.extractProof(lookupExisting);
+            SinglyLinkedList<Hash> proof = mt.extractProof(lookupExisting);
             System.out.println("\nExtracted proof of the existing transaction:");
-            for(String s : proof)
-                System.out.println(s);
+            for(Hash h : proof)
+                System.out.println(h.toHex());
             System.out.println("\nVerification of the existing transaction: "+Utilities.verifyTransaction(lookupExisting, proof, b.getRootHash()));
             System.out.println("\nVerification of the non-existing transaction: "+Utilities.verifyTransaction(lookupNonExisting, proof, b.getRootHash()));
         }
@@ -4,13 +4,13 @@
 public class Transaction implements Comparable<Transaction>
 {
     /**
-     * String representing who's sending the transaction.
+     * Id in the AccountDictionary of who's sending the transaction.
      */
-    private String sender;
+    private int sender;
     /**
-     * String representing who's recieving the transaction.
+     * Id in the AccountDictionary of who's recieving the transaction.
      */
-    private String receiver;
+    private int receiver;
     /**
      * Integer representing the amount of money being sent.
      */
@@ -29,8 +29,24 @@ public class Transaction implements Comparable<Transaction>
      */
     public Transaction(String sender, String receiver, int amount, int fee)
     {
-        this.sender = sender;
-        this.receiver = receiver;
+        this(AccountDictionary.shared().id(sender), AccountDictionary.shared().id(receiver), amount, fee);
+    }
+
+    /**
+     * Constructs the Transaction object from account ids, skipping the lookup of the names.
+     * @param senderId Id in the shared AccountDictionary of who's sending the transaction.
+     * @param receiverId Id in the shared AccountDictionary of who's recieving the transaction.
+     * @param amount Integer representing the amount of money being sent.
+     * @param fee Integer repersenting the amount of fees being collected.
+     */
+    public Transaction(int senderId, int receiverId, int amount, int fee)
+    {
+        if(senderId < 0 || senderId >= AccountDictionary.shared().size())
+            throw new RuntimeException("Invalid account id: " + senderId);
+        if(receiverId < 0 || receiverId >= AccountDictionary.shared().size())
+            throw new RuntimeException("Invalid account id: " + receiverId);
+        this.sender = senderId;
+        this.receiver = receiverId;
         this.amount = amount;
         this.fee = fee;
     }
@@ -41,7 +57,52 @@ public class Transaction implements Comparable<Transaction>
      */
     public String toString()
     {
-        return String.format("%s %s %d %d", sender, receiver, amount, fee);
+        return String.format("%s %s %d %d", getSender(), getReceiver(), amount, fee);
+    }
+
+    /**
+     * Gets the sender of the Transaction.
+     * @return String sender.
+     */
+    public String getSender()
+    {
+        return AccountDictionary.shared().name(sender);
+    }
+
+    /**
+     * Gets the account id of the sender of the Transaction.
+     * @return Int id in the shared AccountDictionary.
+     */
+    public int getSenderId()
+    {
+        return sender;
+    }
+
+    /**
+     * Gets the receiver of the Transaction.
+     * @return String receiver.
+     */
+    public String getReceiver()
+    {
+        return AccountDictionary.shared().name(receiver);
+    }
+
+    /**
+     * Gets the account id of the receiver of the Transaction.
+     * @return Int id in the shared AccountDictionary.
+     */
+    public int getReceiverId()
+    {
+        return receiver;
+    }
+
+    /**
+     * Gets the amount of the Transaction.
+     * @return Int amount.
+     */
+    public int getAmount()
+    {
+        return amount;
     }
 
     /**
@@ -53,6 +114,17 @@ public class Transaction implements Comparable<Transaction>
         return fee;
     }
 
+    /**
+     * Estimates the memory the Transaction takes.
+     * The names are stored once in the AccountDictionary and shared, so only the object itself is counted.
+     * @return Returns the estimated size in bytes.
+     */
+    public int estimatedBytes()
+    {
+        // A 12 byte header and four ints, rounded up to 8.
+        return 32;
+    }
+
     /*
      * @param t Transaction to compare to.
      * @return Returns a negative integer, zero, or a positive integer as this object is less than, equal to, or greater than the specified object.
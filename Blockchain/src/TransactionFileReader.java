@@ -0,0 +1,268 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Reads transaction files by memory-mapping them and scanning the bytes directly, instead of going through the regular expressions of a Scanner.
+ * Every line holds one transaction as "sender receiver amount fee", the fields separated by spaces or tabs, like input.txt.
+ * Blank lines are skipped and lines may end with "\n" or "\r\n". The numbers are parsed from the bytes without building Strings,
+ * and names that repeat are looked up in the AccountDictionary once, so the only object made per line is usually the Transaction.
+ * A malformed line stops the read with a TransactionFormatException that gives its line number.
+ * A reader keeps a cache of names, so it must not be used by several threads at the same time.
+ */
+public class TransactionFileReader
+{
+    /**
+     * Largest part of the file mapped at once.
+     */
+    private static final int WINDOW = 1 << 28;
+    /**
+     * Number of names remembered, a power of two.
+     */
+    private static final int NAME_CACHE_SIZE = 4096;
+
+    /**
+     * Recently decoded names, by a hash of their bytes.
+     */
+    private final String[] names = new String[NAME_CACHE_SIZE];
+    /**
+     * Account id of each cached name.
+     */
+    private final int[] accountIds = new int[NAME_CACHE_SIZE];
+    /**
+     * Working space for decoding a name that isn't cached.
+     */
+    private byte[] scratch = new byte[64];
+    /**
+     * Start and end of each field of the line being parsed.
+     */
+    private final int[] fields = new int[8];
+
+    /**
+     * Reads every transaction of a file.
+     * @param pgmFile The filename of the text file.
+     * @param sink Receives the Transactions in the order they appear in the file.
+     * @return Returns the number of transactions read.
+     */
+    public long read(String pgmFile, Consumer<Transaction> sink)
+    {
+        try(FileChannel channel = FileChannel.open(Paths.get(pgmFile), StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            long start = 0;
+            long line = 1;
+            long count = 0;
+            // Map the file a window at a time, each window ends after its last full line so no line is split.
+            while(start < size)
+            {
+                long length = Math.min(WINDOW, size - start);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                int limit = (int) length;
+                if(start + length < size)
+                {
+                    limit = lastLineEnd(buffer, limit);
+                    if(limit == 0)
+                        throw new TransactionFormatException(line, "line longer than " + WINDOW + " bytes");
+                }
+                buffer.limit(limit);
+                long[] result = parse(buffer, line, sink);
+                line = result[0];
+                count += result[1];
+                start += limit;
+            }
+            return count;
+        }
+        catch(NoSuchFileException e)
+        {
+            throw new RuntimeException("File: " + pgmFile + " not found");
+        }
+        catch(IOException e)
+        {
+            throw new RuntimeException("File: " + pgmFile + " could not be read: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parses the lines between the position and the limit of a buffer, the position is moved to the limit.
+     * @param buffer The bytes to parse, ending at the end of a line or of the file.
+     * @param firstLine Line number of the first line in the buffer, used in errors.
+     * @param sink Receives the Transactions in the order they appear.
+     * @return Returns the line number after the last line parsed at index 0, and the number of transactions read at index 1.
+     */
+    public long[] parse(ByteBuffer buffer, long firstLine, Consumer<Transaction> sink)
+    {
+        int end = buffer.limit();
+        int pos = buffer.position();
+        long line = firstLine;
+        long count = 0;
+        while(pos < end)
+        {
+            // Split the line into fields, remembering where each one starts and ends.
+            int numFields = 0;
+            int fieldStart = -1;
+            byte b = 0;
+            while(pos < end && (b = buffer.get(pos)) != '\n')
+            {
+                boolean blank = b == ' ' || b == '\t' || b == '\r';
+                if(fieldStart < 0 && !blank)
+                {
+                    fieldStart = pos;
+                }
+                else if(fieldStart >= 0 && blank)
+                {
+                    addField(numFields++, fieldStart, pos, line);
+                    fieldStart = -1;
+                }
+                pos++;
+            }
+            if(fieldStart >= 0)
+                addField(numFields++, fieldStart, pos, line);
+            pos++;
+
+            if(numFields == 4)
+            {
+                int sender = accountId(buffer, fields[0], fields[1]);
+                int receiver = accountId(buffer, fields[2], fields[3]);
+                int amount = parseInt(buffer, fields[4], fields[5], line, "amount");
+                int fee = parseInt(buffer, fields[6], fields[7], line, "fee");
+                sink.accept(new Transaction(sender, receiver, amount, fee));
+                count++;
+            }
+            else if(numFields != 0)
+            {
+                throw new TransactionFormatException(line, "expected 4 fields \"sender receiver amount fee\" but found " + numFields);
+            }
+            line++;
+        }
+        buffer.position(end);
+        return new long[] {line, count};
+    }
+
+    /**
+     * Records where a field is.
+     * @param index Index of the field in the line.
+     * @param start Index of the first byte of the field.
+     * @param end Index after the last byte of the field.
+     * @param line Line number, used in errors.
+     */
+    private void addField(int index, int start, int end, long line)
+    {
+        if(index >= 4)
+            throw new TransactionFormatException(line, "expected 4 fields \"sender receiver amount fee\" but found more");
+        fields[2 * index] = start;
+        fields[2 * index + 1] = end;
+    }
+
+    /**
+     * Parses a decimal integer with an optional sign straight from the bytes.
+     * @param buffer The bytes.
+     * @param start Index of the first byte of the number.
+     * @param end Index after the last byte of the number.
+     * @param line Line number, used in errors.
+     * @param field Name of the field, used in errors.
+     * @return Returns the number.
+     */
+    private static int parseInt(ByteBuffer buffer, int start, int end, long line, String field)
+    {
+        int pos = start;
+        boolean negative = false;
+        byte first = buffer.get(pos);
+        if(first == '-' || first == '+')
+        {
+            negative = first == '-';
+            pos++;
+        }
+        if(pos == end)
+            throw new TransactionFormatException(line, "invalid " + field + " \"" + text(buffer, start, end) + "\"");
+        // Accumulate as a negative number so Integer.MIN_VALUE can be read too.
+        long value = 0;
+        for(; pos < end; pos++)
+        {
+            int digit = buffer.get(pos) - '0';
+            if(digit < 0 || digit > 9)
+                throw new TransactionFormatException(line, "invalid " + field + " \"" + text(buffer, start, end) + "\"");
+            value = value * 10 - digit;
+            if(value < Integer.MIN_VALUE)
+                throw new TransactionFormatException(line, field + " out of range \"" + text(buffer, start, end) + "\"");
+        }
+        if(!negative && value == Integer.MIN_VALUE)
+            throw new TransactionFormatException(line, field + " out of range \"" + text(buffer, start, end) + "\"");
+        return (int) (negative ? value : -value);
+    }
+
+    /**
+     * The account id of a name, reusing the id of the last name with the same bytes.
+     * @param buffer The bytes.
+     * @param start Index of the first byte of the name.
+     * @param end Index after the last byte of the name.
+     * @return Returns the id in the shared AccountDictionary.
+     */
+    private int accountId(ByteBuffer buffer, int start, int end)
+    {
+        int length = end - start;
+        int hash = 0;
+        boolean ascii = true;
+        for(int i = start; i < end; i++)
+        {
+            byte b = buffer.get(i);
+            hash = 31 * hash + b;
+            ascii &= b >= 0;
+        }
+        if(!ascii)
+            return AccountDictionary.shared().id(text(buffer, start, end));
+
+        int slot = (hash ^ (hash >>> 16)) & (NAME_CACHE_SIZE - 1);
+        String cached = names[slot];
+        if(cached != null && cached.length() == length)
+        {
+            int i = 0;
+            while(i < length && cached.charAt(i) == buffer.get(start + i))
+                i++;
+            if(i == length)
+                return accountIds[slot];
+        }
+        if(scratch.length < length)
+            scratch = new byte[Math.max(length, 2 * scratch.length)];
+        for(int i = 0; i < length; i++)
+            scratch[i] = buffer.get(start + i);
+        String name = new String(scratch, 0, length, StandardCharsets.US_ASCII);
+        names[slot] = name;
+        accountIds[slot] = AccountDictionary.shared().id(name);
+        return accountIds[slot];
+    }
+
+    /**
+     * Decodes bytes as UTF-8.
+     * @param buffer The bytes.
+     * @param start Index of the first byte.
+     * @param end Index after the last byte.
+     * @return Returns the text.
+     */
+    private static String text(ByteBuffer buffer, int start, int end)
+    {
+        byte[] bytes = new byte[end - start];
+        for(int i = 0; i < bytes.length; i++)
+            bytes[i] = buffer.get(start + i);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Finds the end of the last full line of a buffer.
+     * @param buffer The bytes.
+     * @param limit Index after the last byte to look at.
+     * @return Returns the index after the last "\n", or 0 if there is none.
+     */
+    static int lastLineEnd(ByteBuffer buffer, int limit)
+    {
+        int i = limit;
+        while(i > 0 && buffer.get(i - 1) != '\n')
+            i--;
+        return i;
+    }
+}
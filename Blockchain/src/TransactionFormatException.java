@@ -0,0 +1,49 @@
+/**
+ * Thrown when a transaction file has a line that isn't "sender receiver amount fee".
+ */
+public class TransactionFormatException extends RuntimeException
+{
+    /**
+     * Serialization version, exceptions are serializable.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Line of the file the error is on, counted from 1.
+     */
+    private final long line;
+    /**
+     * What is wrong with the line.
+     */
+    private final String reason;
+
+    /**
+     * Constructor for the exception.
+     * @param line Line of the file the error is on, counted from 1.
+     * @param message What is wrong with the line.
+     */
+    public TransactionFormatException(long line, String message)
+    {
+        super("Line " + line + ": " + message);
+        this.line = line;
+        this.reason = message;
+    }
+
+    /**
+     * Line of the file the error is on.
+     * @return Returns the line number, counted from 1.
+     */
+    public long getLine()
+    {
+        return line;
+    }
+
+    /**
+     * What is wrong with the line, without the line number.
+     * @return Returns the description of the error.
+     */
+    public String getReason()
+    {
+        return reason;
+    }
+}
@@ -13,8 +13,8 @@ public class UI extends JFrame
     private PriorityLine<Transaction> transactions;
     private Blockchain chain;
     Transaction transaction;
-    SinglyLinkedList<String> proof;
-    ArrayList<MerkleTree> merkleTrees = new ArrayList<>();
+    SinglyLinkedList<Hash> proof;
+    MerkleTreeCache merkleTrees = new MerkleTreeCache(64L << 20);
     int threshold = 20;
 
     public UI() {
@@ -120,6 +120,7 @@ public class UI extends JFrame
                     chain = new Blockchain(transactions, threshold);
                     blockchainPanel.removeAll(); 
                     merkleTreePanel.removeAll();
+                    merkleTrees.clear();
 
                     int i=0;
                     for(Block b : chain)
@@ -127,9 +128,8 @@ public class UI extends JFrame
                         BlockPanel block = new BlockPanel(b, i);
                         blockchainPanel.addBlock(block, i);
 
-                        MerkleTreeComponent merkleTree = new MerkleTreeComponent(b, i);
+                        MerkleTreeComponent merkleTree = new MerkleTreeComponent(merkleTrees.get(b), i);
                         merkleTreePanel.addMerkleTree(merkleTree, i);
-                        merkleTrees.add(new MerkleTree(b));
                         i++;
                     }
                     blockchainPanel.revalidate();
@@ -169,12 +169,29 @@ public class UI extends JFrame
                     int fee = Integer.parseInt(inputBox4.getText());
                     int mtNumber = Integer.parseInt(inputBox5.getText());
                     transaction = new Transaction(sender, reciever, amount, fee);
-                    MerkleTree mt = merkleTrees.get(mtNumber);
+                    Block block = null;
+                    int j = 0;
+                    // Nothing is loaded until a file is opened.
+                    if(chain != null)
+                    {
+                        for(Block b : chain)
+                        {
+                            if(mtNumber == j)
+                                block = b;
+                            j++;
+                        }
+                    }
+                    if(block == null)
+                    {
+                        JOptionPane.showMessageDialog(null, "Block " + mtNumber + " does not exist.", "Error", JOptionPane.ERROR_MESSAGE);
+                        return;
+                    }
+                    MerkleTree mt = merkleTrees.get(block);
                     proof = mt.extractProof(transaction);
                     centerPanel.removeAll();
-                    for(String s : proof)
+                    for(Hash h : proof)
                     {
-                        centerPanel.add(new JLabel(s));
+                        centerPanel.add(new JLabel(h.toHex()));
                     }
                     centerPanel.revalidate();
                     centerPanel.repaint();
@@ -190,17 +207,25 @@ public class UI extends JFrame
             @Override
             public void actionPerformed(ActionEvent e)
             {
-                String brh = "";
+                Hash brh = null;
                 int i = 0;
                 try 
                 {
                     i = Integer.parseInt(bottomInputBox.getText());
                     int j = 0;
-                    for(Block b : chain)
+                    if(chain != null)
+                    {
+                        for(Block b : chain)
+                        {
+                            if(i == j)
+                                brh = b.getRootHash();
+                            j++;
+                        }
+                    }
+                    if(brh == null)
                     {
-                        if(i == j)
-                            brh = b.getRootHash();
-                        j++;
+                        JOptionPane.showMessageDialog(null, "Block " + i + " does not exist.", "Error", JOptionPane.ERROR_MESSAGE);
+                        return;
                     }
                     if(Utilities.verifyTransaction(transaction, proof, brh))
                     {
@@ -240,24 +265,23 @@ public class UI extends JFrame
         }
     }
     private class MerkleTreeComponent extends JPanel {
-        public MerkleTreeComponent(Block block, int blockNum) {
+        public MerkleTreeComponent(MerkleTree tree, int blockNum) {
             setBorder(BorderFactory.createTitledBorder("Merkle Block Number: " + blockNum));
             setLayout(new GridLayout(0, 1));
 
             // Create a JTree to represent the Merkle tree
-            MerkleTree tree = new MerkleTree(block);
-            SinglyLinkedList<String> linkedList = tree.breadthFirstTraversal();
-            Iterator<String> linkedListIterator = linkedList.iterator();
+            SinglyLinkedList<Hash> linkedList = tree.breadthFirstTraversal();
+            Iterator<Hash> linkedListIterator = linkedList.iterator();
             
-            DefaultMutableTreeNode rootNode = new DefaultMutableTreeNode(linkedListIterator.next());
+            DefaultMutableTreeNode rootNode = new DefaultMutableTreeNode(linkedListIterator.next().toHex());
             DefaultMutableTreeNode leftNode;
             DefaultMutableTreeNode rightNode;
             DefaultMutableTreeNode currentNode = rootNode;
             Queue<DefaultMutableTreeNode> queue = new LinkedList<>();
             while(linkedListIterator.hasNext())
             {
-                leftNode = new DefaultMutableTreeNode(linkedListIterator.next());
-                rightNode = new DefaultMutableTreeNode(linkedListIterator.next());
+                leftNode = new DefaultMutableTreeNode(linkedListIterator.next().toHex());
+                rightNode = new DefaultMutableTreeNode(linkedListIterator.next().toHex());
                 currentNode.add(leftNode);
                 currentNode.add(rightNode);
                 queue.add(leftNode);
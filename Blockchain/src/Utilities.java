@@ -1,8 +1,4 @@
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.Scanner;
-import java.security.MessageDigest;
-import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
 
 /**
  * A Utilities class that contains methods useful towards creating a blockchian.
@@ -16,46 +12,108 @@ public final class Utilities
      */
     public static PriorityLine<Transaction> loadTransactions(String pgmFile)
     {
-        PriorityLine<Transaction> priorityLine = new PriorityLine<>();
-        try
-        {
-            File textFile = new File(pgmFile);
-            Scanner scnr = new Scanner(textFile);
-
-            while(scnr.hasNext())
-            {
-                Transaction transaction = new Transaction(scnr.next(), scnr.next(), scnr.nextInt(), scnr.nextInt());
-                
-                priorityLine.enqueue(transaction);
-            }
-
-            scnr.close();
-        } 
-        catch (FileNotFoundException e) 
-        {
-            throw new RuntimeException("File: " + pgmFile + " not found");
-        }
+        // Read everything first so the queue can be built in one linear pass.
+        SinglyLinkedList<Transaction> read = new SinglyLinkedList<>();
+        readTransactions(pgmFile, read::add);
+        return new PriorityLine<>(read);
+    }
 
+    /**
+     * Reads the transactions from a text file and adds them to the given priority queue, such as a FeePriorityLine.
+     * Each transaction is added as soon as it's read, so a BoundedMempool keeps the memory used by a large file under its cap.
+     * The transactions are added on the calling thread, before anything can dequeue them, so a BoundedMempool with the BLOCK policy is refused:
+     * once full it would wait forever for a consumer.
+     * @param pgmFile The filename of the text file.
+     * @param <Q> Type of the queue.
+     * @param priorityLine The queue to add the transactions to.
+     * @return Returns the same queue.
+     */
+    public static <Q extends AbstractPriorityLine<Transaction>> Q loadTransactions(String pgmFile, Q priorityLine)
+    {
+        BoundedMempool.requireNonBlocking(priorityLine);
+        readTransactions(pgmFile, priorityLine::enqueue);
         return priorityLine;
     }
 
+    /**
+     * Reads the transactions from a text file on several threads, the queue is the same as with a sequential load.
+     * @param pgmFile The filename of the text file.
+     * @param threads Number of threads parsing the file.
+     * @return Returns a queue of the Transactions.
+     */
+    public static PriorityLine<Transaction> loadTransactions(String pgmFile, int threads)
+    {
+        return new ParallelTransactionLoader(threads).load(pgmFile);
+    }
+
+    /**
+     * Reads the transactions from a file in the BinaryTransactionFormat, made from a text file with BinaryTransactionFormat.convert.
+     * @param binaryFile The filename of the binary file.
+     * @return Returns a queue of the Transactions.
+     */
+    public static PriorityLine<Transaction> loadBinaryTransactions(String binaryFile)
+    {
+        return BinaryTransactionReader.load(binaryFile);
+    }
+
+    /**
+     * Reads the transactions from a text file.
+     * @param pgmFile The filename of the text file.
+     * @param sink Receives the Transactions in the order they appear in the file.
+     */
+    private static void readTransactions(String pgmFile, Consumer<Transaction> sink)
+    {
+        new TransactionFileReader().read(pgmFile, sink);
+    }
+
+    /**
+     * Verifies if the given transaction when hashed with all the hashes in the proof equals the rootHash.
+     * The hashes are made with SHA-256 and merged with the legacy XOR scheme.
+     * @param t The transaction that we want to verify it's contained in a certain block.
+     * @param proof The list of hashes extracted with the method extractProof.
+     * @param blockRootHash The root hash code stored in the respective block.
+     * @return Returns true if the transaction is verified, false otherwise.
+     */
+    public static boolean verifyTransaction(Transaction t, SinglyLinkedList<Hash> proof, Hash blockRootHash)
+    {
+        return verifyTransaction(t, proof, blockRootHash, HashEngine.SHA256, Combiner.LEGACY_XOR);
+    }
+
+    /**
+     * Verifies if the given transaction is contained in a block, using the root hash, hash function and combiner stored in the block.
+     * @param t The transaction that we want to verify it's contained in the block.
+     * @param proof The list of hashes extracted with the method extractProof.
+     * @param block The block that the proof was extracted from.
+     * @return Returns true if the transaction is verified, false otherwise.
+     */
+    public static boolean verifyTransaction(Transaction t, SinglyLinkedList<Hash> proof, Block block)
+    {
+        if(block == null)
+            throw new RuntimeException();
+        return verifyTransaction(t, proof, block.getRootHash(), block.getHashFunction(), block.getCombiner());
+    }
+
     /**
      * Verifies if the given transaction when hashed with all the hashes in the proof equals the rootHash.
      * @param t The transaction that we want to verify it's contained in a certain block.
      * @param proof The list of hashes extracted with the method extractProof.
      * @param blockRootHash The root hash code stored in the respective block.
+     * @param hashFunction The hash function the merkle tree was built with.
+     * @param combiner How the merkle tree merged the hashes of two children, it must not depend on the order of the children.
      * @return Returns true if the transaction is verified, false otherwise.
      */
-    public static boolean verifyTransaction(Transaction t, SinglyLinkedList<String> proof, String blockRootHash)
+    public static boolean verifyTransaction(Transaction t, SinglyLinkedList<Hash> proof, Hash blockRootHash, HashFunction hashFunction, Combiner combiner)
     {
-        if(t == null || proof == null || blockRootHash == null)
+        if(t == null || proof == null || blockRootHash == null || hashFunction == null || combiner == null)
             throw new RuntimeException();
+        if(!combiner.isCommutative())
+            throw new RuntimeException("Combiner " + combiner + " needs a MerkleProof that records the side of each hash");
         
-        String transactionHash = cryptographicHashFunction(t.toString());
+        Hash transactionHash = hashFunction.hash(t.toString());
 
-        for(String hash : proof)
+        for(Hash hash : proof)
         {
-            transactionHash = cryptographicHashFunction(transactionHash, hash);
+            transactionHash = combiner.combine(hashFunction, transactionHash, hash);
         }
 
         if(transactionHash.equals(blockRootHash))
@@ -65,68 +123,138 @@ public final class Utilities
     }
 
     /**
-     * SHA-256 cryptographic hash function for a single input.
-     * @param input String to hash.
-     * @return Returns the hashed string.
+     * Verifies if the given transaction is contained in a block, using the root hash, hash function and combiner stored in the block.
+     * @param t The transaction that we want to verify it's contained in the block.
+     * @param proof The proof extracted with the method extractMerkleProof.
+     * @param block The block that the proof was extracted from.
+     * @return Returns true if the transaction is verified, false otherwise.
      */
-    public static String cryptographicHashFunction(String input)
+    public static boolean verifyTransaction(Transaction t, MerkleProof proof, Block block)
     {
-        StringBuilder hexString = null;
+        if(block == null)
+            throw new RuntimeException();
+        return verifyTransaction(t, proof, block.getRootHash(), block.getHashFunction(), block.getCombiner());
+    }
 
-        try
-        {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] encodedhash = digest.digest(input.getBytes(StandardCharsets.UTF_8));
-            hexString = new StringBuilder(2 * encodedhash.length);
-            for (int i = 0; i < encodedhash.length; i++)
-            {
-                String hex = Integer.toHexString(0xff & encodedhash[i]);
-                if(hex.length() == 1) {
-                    hexString.append('0');
-                }
-                hexString.append(hex);
-            }
-        }
-        catch(Exception e)
-        {
-            System.err.println(e.getMessage());
-        }
+    /**
+     * Verifies if the given transaction when hashed with all the hashes in the proof, each on its recorded side, equals the rootHash.
+     * Works with every combiner, including the ones that depend on the order of the children.
+     * @param t The transaction that we want to verify it's contained in a certain block.
+     * @param proof The proof extracted with the method extractMerkleProof.
+     * @param blockRootHash The root hash code stored in the respective block.
+     * @param hashFunction The hash function the merkle tree was built with.
+     * @param combiner How the merkle tree merged the hashes of two children.
+     * @return Returns true if the transaction is verified, false otherwise.
+     */
+    public static boolean verifyTransaction(Transaction t, MerkleProof proof, Hash blockRootHash, HashFunction hashFunction, Combiner combiner)
+    {
+        if(t == null || proof == null || blockRootHash == null || hashFunction == null || combiner == null)
+            throw new RuntimeException();
 
-        return hexString.toString();
+        return proof.computeRoot(hashFunction.hash(t.toString()), hashFunction, combiner).equals(blockRootHash);
     }
 
     /**
-     * SHA-256 cryptographic hash function for a pair of inputs.
-     * It uses the XOR bitwise operator to merge the two hash codes.
-     * @param input1 String to hash
-     * @param input2 String to hash
-     * @return Returns the hashed string
+     * Verifies if the given transaction is contained in a block from a binary proof, using the root hash, hash function and combiner stored in the block.
+     * @param t The transaction that we want to verify it's contained in the block.
+     * @param proof The proof decoded with BinaryProof.wrap.
+     * @param block The block that the proof was extracted from.
+     * @return Returns true if the transaction is verified, false otherwise.
      */
-    public static String cryptographicHashFunction(String input1, String input2)
+    public static boolean verifyTransaction(Transaction t, BinaryProof proof, Block block)
     {
-        StringBuilder hexString = null;
+        if(block == null)
+            throw new RuntimeException();
+        return verifyTransaction(t, proof, block.getRootHash(), block.getHashFunction(), block.getCombiner());
+    }
 
-        try
-        {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] encodedhash1 = digest.digest(input1.getBytes(StandardCharsets.UTF_8));
-            byte[] encodedhash2 = digest.digest(input2.getBytes(StandardCharsets.UTF_8));
-            hexString = new StringBuilder(2 * encodedhash1.length);
-            for (int i = 0; i < encodedhash1.length; i++)
-            {
-                String hex = Integer.toHexString(0xff & (encodedhash1[i] ^ encodedhash2[i]) );
-                if(hex.length() == 1) {
-                    hexString.append('0');
-                }
-                hexString.append(hex);
-            }
-        }
-        catch(Exception e)
-        {
-            System.err.println(e.getMessage());
-        }
+    /**
+     * Verifies if the given transaction when hashed with all the hashes of a binary proof, each on its recorded side, equals the rootHash.
+     * The siblings are read straight from the proof's buffer.
+     * @param t The transaction that we want to verify it's contained in a certain block.
+     * @param proof The proof decoded with BinaryProof.wrap.
+     * @param blockRootHash The root hash code stored in the respective block.
+     * @param hashFunction The hash function the merkle tree was built with.
+     * @param combiner How the merkle tree merged the hashes of two children.
+     * @return Returns true if the transaction is verified, false otherwise.
+     */
+    public static boolean verifyTransaction(Transaction t, BinaryProof proof, Hash blockRootHash, HashFunction hashFunction, Combiner combiner)
+    {
+        if(t == null || proof == null || blockRootHash == null || hashFunction == null || combiner == null)
+            throw new RuntimeException();
+
+        return proof.computeRoot(t, hashFunction, combiner).equals(blockRootHash);
+    }
+
+    /**
+     * Verifies if the given transaction is contained in a chain, using only the root hash of the chain.
+     * @param t The transaction that we want to verify it's contained in the chain.
+     * @param proof The proof extracted with the method extractProof of the Blockchain.
+     * @param chainRootHash The root hash of the chain.
+     * @return Returns true if the transaction is verified, false otherwise.
+     */
+    public static boolean verifyTransaction(Transaction t, ChainProof proof, Hash chainRootHash)
+    {
+        if(t == null || proof == null || chainRootHash == null)
+            throw new RuntimeException();
 
-        return hexString.toString();
+        return chainRootHash.equals(proof.computeRoot(t));
+    }
+
+    /**
+     * Verifies that all the given transactions are contained in a block, using the root hash, hash function and combiner stored in the block.
+     * @param transactions The transactions, in the same order they were given to extractMultiProof.
+     * @param proof The proof extracted with the method extractMultiProof.
+     * @param block The block that the proof was extracted from.
+     * @return Returns true if every transaction is verified, false otherwise.
+     */
+    public static boolean verifyTransactions(Transaction[] transactions, MerkleMultiProof proof, Block block)
+    {
+        if(block == null)
+            throw new RuntimeException();
+        return verifyTransactions(transactions, proof, block.getRootHash(), block.getHashFunction(), block.getCombiner());
+    }
+
+    /**
+     * Verifies that all the given transactions are contained in a block, recomputing the root hash only once.
+     * @param transactions The transactions, in the same order they were given to extractMultiProof.
+     * @param proof The proof extracted with the method extractMultiProof.
+     * @param blockRootHash The root hash code stored in the respective block.
+     * @param hashFunction The hash function the merkle tree was built with.
+     * @param combiner How the merkle tree merged the hashes of two children.
+     * @return Returns true if every transaction is verified, false otherwise.
+     */
+    public static boolean verifyTransactions(Transaction[] transactions, MerkleMultiProof proof, Hash blockRootHash, HashFunction hashFunction, Combiner combiner)
+    {
+        if(transactions == null || proof == null || blockRootHash == null || hashFunction == null || combiner == null)
+            throw new RuntimeException();
+
+        Hash[] leafHashes = new Hash[transactions.length];
+        for(int i = 0; i < transactions.length; i++)
+            leafHashes[i] = hashFunction.hash(transactions[i].toString());
+        return blockRootHash.equals(proof.computeRoot(leafHashes, hashFunction, combiner));
+    }
+
+    /**
+     * SHA-256 cryptographic hash function for a single input.
+     * @param input String to hash.
+     * @return Returns the hash.
+     */
+    public static Hash cryptographicHashFunction(String input)
+    {
+        return HashEngine.SHA256.hash(input);
+    }
+
+    /**
+     * SHA-256 cryptographic hash function for a pair of inputs.
+     * It uses the legacy XOR scheme to merge the two hash codes.
+     * @param input1 Hash to combine.
+     * @param input2 Hash to combine.
+     * @return Returns the combined hash.
+     */
+    public static Hash cryptographicHashFunction(Hash input1, Hash input2)
+    {
+        return Combiner.LEGACY_XOR.combine(HashEngine.SHA256, input1, input2);
     }
 
 }